@@ -19,7 +19,7 @@ var host = flag.String("host", "localhost", "server hostname or ip")
 var port = flag.Int("port", 50051, "server listening port")
 var tls = flag.Bool("tls", false, "enable SSL")
 var caCert = flag.String("cacert", "", "trusted CA certificate")
-var call = flag.String("call", "un", "type of rpc un (unary), ss (server-side streaming), cs (client-side streaming) or bs (bi-directional streaming)")
+var call = flag.String("call", "un", "type of rpc un (unary), ss (server-side streaming), cs (client-side streaming), bs (bi-directional streaming) or bt (batch)")
 
 func main() {
 	flag.Parse()
@@ -54,6 +54,8 @@ func main() {
 		doClientStreaming(c)
 	case "bs":
 		doBiDiStreaming(c)
+	case "bt":
+		doBatch(c)
 	default:
 		fmt.Printf("unknown call type %s.\n", *call)
 	}
@@ -80,6 +82,35 @@ func doUnary(c pb.GreetServiceClient) {
 	log.Printf("Response from Greet: %v", res.Result)
 }
 
+func doBatch(c pb.GreetServiceClient) {
+	fmt.Println("Starting to do a Batch RPC...")
+	req := &pb.GreetBatchRequest{
+		Greeters: []*pb.Greeter{
+			&pb.Greeter{
+				FirstName: "Stephane",
+			},
+			&pb.Greeter{
+				FirstName: "John",
+			},
+			&pb.Greeter{
+				FirstName: "Lucy",
+			},
+		},
+	}
+
+	md := metadata.Pairs("token", "valid-token")
+	ctx := metadata.NewOutgoingContext(context.Background(), md)
+	res, err := c.GreetBatch(ctx, req)
+
+	if err != nil {
+		log.Fatalf("error while calling GreetBatch RPC: %v", err)
+	}
+
+	for _, result := range res.GetResults() {
+		log.Printf("Response from GreetBatch: %v", result.GetResult())
+	}
+}
+
 func doServerStreaming(c pb.GreetServiceClient) {
 	fmt.Println("Starting to do a Server Streaming RPC...")
 
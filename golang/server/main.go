@@ -83,6 +83,21 @@ func (*server) Greet(ctx context.Context, req *pb.GreetRequest) (*pb.GreetRespon
 	return res, nil
 }
 
+func (*server) GreetBatch(ctx context.Context, req *pb.GreetBatchRequest) (*pb.GreetBatchResponse, error) {
+	fmt.Printf("GreetBatch function was invoked with %d greeters\n", len(req.GetGreeters()))
+	results := make([]*pb.GreetResponse, len(req.GetGreeters()))
+
+	for i, greeter := range req.GetGreeters() {
+		results[i] = &pb.GreetResponse{
+			Result: "Hello " + greeter.GetFirstName(),
+		}
+	}
+
+	return &pb.GreetBatchResponse{
+		Results: results,
+	}, nil
+}
+
 func (*server) GreetManyTimes(req *pb.GreetRequest, stream pb.GreetService_GreetManyTimesServer) error {
 	fmt.Printf("GreetManyTimes function was invoked with %v\n", req)
 	firstName := req.GetGreeter().GetFirstName()
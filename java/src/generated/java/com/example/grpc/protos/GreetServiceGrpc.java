@@ -151,6 +151,37 @@ public final class GreetServiceGrpc {
     return getGreetEveryoneMethod;
   }
 
+  private static volatile io.grpc.MethodDescriptor<com.example.grpc.protos.Greeting.GreetBatchRequest,
+      com.example.grpc.protos.Greeting.GreetBatchResponse> getGreetBatchMethod;
+
+  @io.grpc.stub.annotations.RpcMethod(
+      fullMethodName = SERVICE_NAME + '/' + "GreetBatch",
+      requestType = com.example.grpc.protos.Greeting.GreetBatchRequest.class,
+      responseType = com.example.grpc.protos.Greeting.GreetBatchResponse.class,
+      methodType = io.grpc.MethodDescriptor.MethodType.UNARY)
+  public static io.grpc.MethodDescriptor<com.example.grpc.protos.Greeting.GreetBatchRequest,
+      com.example.grpc.protos.Greeting.GreetBatchResponse> getGreetBatchMethod() {
+    io.grpc.MethodDescriptor<com.example.grpc.protos.Greeting.GreetBatchRequest, com.example.grpc.protos.Greeting.GreetBatchResponse> getGreetBatchMethod;
+    if ((getGreetBatchMethod = GreetServiceGrpc.getGreetBatchMethod) == null) {
+      synchronized (GreetServiceGrpc.class) {
+        if ((getGreetBatchMethod = GreetServiceGrpc.getGreetBatchMethod) == null) {
+          GreetServiceGrpc.getGreetBatchMethod = getGreetBatchMethod =
+              io.grpc.MethodDescriptor.<com.example.grpc.protos.Greeting.GreetBatchRequest, com.example.grpc.protos.Greeting.GreetBatchResponse>newBuilder()
+              .setType(io.grpc.MethodDescriptor.MethodType.UNARY)
+              .setFullMethodName(generateFullMethodName(SERVICE_NAME, "GreetBatch"))
+              .setSampledToLocalTracing(true)
+              .setRequestMarshaller(io.grpc.protobuf.ProtoUtils.marshaller(
+                  com.example.grpc.protos.Greeting.GreetBatchRequest.getDefaultInstance()))
+              .setResponseMarshaller(io.grpc.protobuf.ProtoUtils.marshaller(
+                  com.example.grpc.protos.Greeting.GreetBatchResponse.getDefaultInstance()))
+              .setSchemaDescriptor(new GreetServiceMethodDescriptorSupplier("GreetBatch"))
+              .build();
+        }
+      }
+    }
+    return getGreetBatchMethod;
+  }
+
   /**
    * Creates a new async stub that supports all call types for the service
    */
@@ -218,6 +249,16 @@ public final class GreetServiceGrpc {
       return asyncUnimplementedStreamingCall(getGreetEveryoneMethod(), responseObserver);
     }
 
+    /**
+     * <pre>
+     * Unary, many greeters per call
+     * </pre>
+     */
+    public void greetBatch(com.example.grpc.protos.Greeting.GreetBatchRequest request,
+        io.grpc.stub.StreamObserver<com.example.grpc.protos.Greeting.GreetBatchResponse> responseObserver) {
+      asyncUnimplementedUnaryCall(getGreetBatchMethod(), responseObserver);
+    }
+
     @java.lang.Override public final io.grpc.ServerServiceDefinition bindService() {
       return io.grpc.ServerServiceDefinition.builder(getServiceDescriptor())
           .addMethod(
@@ -248,6 +289,13 @@ public final class GreetServiceGrpc {
                 com.example.grpc.protos.Greeting.GreetRequest,
                 com.example.grpc.protos.Greeting.GreetResponse>(
                   this, METHODID_GREET_EVERYONE)))
+          .addMethod(
+            getGreetBatchMethod(),
+            asyncUnaryCall(
+              new MethodHandlers<
+                com.example.grpc.protos.Greeting.GreetBatchRequest,
+                com.example.grpc.protos.Greeting.GreetBatchResponse>(
+                  this, METHODID_GREET_BATCH)))
           .build();
     }
   }
@@ -313,6 +361,17 @@ public final class GreetServiceGrpc {
       return asyncBidiStreamingCall(
           getChannel().newCall(getGreetEveryoneMethod(), getCallOptions()), responseObserver);
     }
+
+    /**
+     * <pre>
+     * Unary, many greeters per call
+     * </pre>
+     */
+    public void greetBatch(com.example.grpc.protos.Greeting.GreetBatchRequest request,
+        io.grpc.stub.StreamObserver<com.example.grpc.protos.Greeting.GreetBatchResponse> responseObserver) {
+      asyncUnaryCall(
+          getChannel().newCall(getGreetBatchMethod(), getCallOptions()), request, responseObserver);
+    }
   }
 
   /**
@@ -353,6 +412,16 @@ public final class GreetServiceGrpc {
       return blockingServerStreamingCall(
           getChannel(), getGreetManyTimesMethod(), getCallOptions(), request);
     }
+
+    /**
+     * <pre>
+     * Unary, many greeters per call
+     * </pre>
+     */
+    public com.example.grpc.protos.Greeting.GreetBatchResponse greetBatch(com.example.grpc.protos.Greeting.GreetBatchRequest request) {
+      return blockingUnaryCall(
+          getChannel(), getGreetBatchMethod(), getCallOptions(), request);
+    }
   }
 
   /**
@@ -383,12 +452,24 @@ public final class GreetServiceGrpc {
       return futureUnaryCall(
           getChannel().newCall(getGreetMethod(), getCallOptions()), request);
     }
+
+    /**
+     * <pre>
+     * Unary, many greeters per call
+     * </pre>
+     */
+    public com.google.common.util.concurrent.ListenableFuture<com.example.grpc.protos.Greeting.GreetBatchResponse> greetBatch(
+        com.example.grpc.protos.Greeting.GreetBatchRequest request) {
+      return futureUnaryCall(
+          getChannel().newCall(getGreetBatchMethod(), getCallOptions()), request);
+    }
   }
 
   private static final int METHODID_GREET = 0;
   private static final int METHODID_GREET_MANY_TIMES = 1;
-  private static final int METHODID_LONG_GREET = 2;
-  private static final int METHODID_GREET_EVERYONE = 3;
+  private static final int METHODID_GREET_BATCH = 2;
+  private static final int METHODID_LONG_GREET = 3;
+  private static final int METHODID_GREET_EVERYONE = 4;
 
   private static final class MethodHandlers<Req, Resp> implements
       io.grpc.stub.ServerCalls.UnaryMethod<Req, Resp>,
@@ -415,6 +496,10 @@ public final class GreetServiceGrpc {
           serviceImpl.greetManyTimes((com.example.grpc.protos.Greeting.GreetRequest) request,
               (io.grpc.stub.StreamObserver<com.example.grpc.protos.Greeting.GreetResponse>) responseObserver);
           break;
+        case METHODID_GREET_BATCH:
+          serviceImpl.greetBatch((com.example.grpc.protos.Greeting.GreetBatchRequest) request,
+              (io.grpc.stub.StreamObserver<com.example.grpc.protos.Greeting.GreetBatchResponse>) responseObserver);
+          break;
         default:
           throw new AssertionError();
       }
@@ -486,6 +571,7 @@ public final class GreetServiceGrpc {
               .addMethod(getGreetManyTimesMethod())
               .addMethod(getLongGreetMethod())
               .addMethod(getGreetEveryoneMethod())
+              .addMethod(getGreetBatchMethod())
               .build();
         }
       }
@@ -1912,6 +1912,1694 @@ public final class Greeting {
 
   }
 
+  public interface GreetBatchRequestOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:example.greeting.GreetBatchRequest)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    java.util.List<com.example.grpc.protos.Greeting.Greeter> 
+        getGreetersList();
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    com.example.grpc.protos.Greeting.Greeter getGreeters(int index);
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    int getGreetersCount();
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    java.util.List<? extends com.example.grpc.protos.Greeting.GreeterOrBuilder> 
+        getGreetersOrBuilderList();
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    com.example.grpc.protos.Greeting.GreeterOrBuilder getGreetersOrBuilder(
+        int index);
+  }
+  /**
+   * Protobuf type {@code example.greeting.GreetBatchRequest}
+   */
+  public  static final class GreetBatchRequest extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:example.greeting.GreetBatchRequest)
+      GreetBatchRequestOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use GreetBatchRequest.newBuilder() to construct.
+    private GreetBatchRequest(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private GreetBatchRequest() {
+      greeters_ = java.util.Collections.emptyList();
+    }
+
+    @java.lang.Override
+    @SuppressWarnings({"unused"})
+    protected java.lang.Object newInstance(
+        UnusedPrivateParameter unused) {
+      return new GreetBatchRequest();
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private GreetBatchRequest(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new java.lang.NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) != 0)) {
+                greeters_ = new java.util.ArrayList<com.example.grpc.protos.Greeting.Greeter>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              greeters_.add(
+                  input.readMessage(com.example.grpc.protos.Greeting.Greeter.parser(), extensionRegistry));
+              break;
+            }
+            default: {
+              if (!parseUnknownField(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) != 0)) {
+          greeters_ = java.util.Collections.unmodifiableList(greeters_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchRequest_descriptor;
+    }
+
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchRequest_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.example.grpc.protos.Greeting.GreetBatchRequest.class, com.example.grpc.protos.Greeting.GreetBatchRequest.Builder.class);
+    }
+
+    public static final int GREETERS_FIELD_NUMBER = 1;
+    private java.util.List<com.example.grpc.protos.Greeting.Greeter> greeters_;
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    public java.util.List<com.example.grpc.protos.Greeting.Greeter> getGreetersList() {
+      return greeters_;
+    }
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    public java.util.List<? extends com.example.grpc.protos.Greeting.GreeterOrBuilder> 
+        getGreetersOrBuilderList() {
+      return greeters_;
+    }
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    public int getGreetersCount() {
+      return greeters_.size();
+    }
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    public com.example.grpc.protos.Greeting.Greeter getGreeters(int index) {
+      return greeters_.get(index);
+    }
+    /**
+     * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+     */
+    public com.example.grpc.protos.Greeting.GreeterOrBuilder getGreetersOrBuilder(
+        int index) {
+      return greeters_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+    @java.lang.Override
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    @java.lang.Override
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      for (int i = 0; i < greeters_.size(); i++) {
+        output.writeMessage(1, greeters_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    @java.lang.Override
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      for (int i = 0; i < greeters_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, greeters_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.example.grpc.protos.Greeting.GreetBatchRequest)) {
+        return super.equals(obj);
+      }
+      com.example.grpc.protos.Greeting.GreetBatchRequest other = (com.example.grpc.protos.Greeting.GreetBatchRequest) obj;
+
+      if (!getGreetersList()
+          .equals(other.getGreetersList())) return false;
+      if (!unknownFields.equals(other.unknownFields)) return false;
+      return true;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getGreetersCount() > 0) {
+        hash = (37 * hash) + GREETERS_FIELD_NUMBER;
+        hash = (53 * hash) + getGreetersList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    @java.lang.Override
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(com.example.grpc.protos.Greeting.GreetBatchRequest prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    @java.lang.Override
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code example.greeting.GreetBatchRequest}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:example.greeting.GreetBatchRequest)
+        com.example.grpc.protos.Greeting.GreetBatchRequestOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchRequest_descriptor;
+      }
+
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchRequest_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.example.grpc.protos.Greeting.GreetBatchRequest.class, com.example.grpc.protos.Greeting.GreetBatchRequest.Builder.class);
+      }
+
+      // Construct using com.example.grpc.protos.Greeting.GreetBatchRequest.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getGreetersFieldBuilder();
+        }
+      }
+      @java.lang.Override
+      public Builder clear() {
+        super.clear();
+        if (greetersBuilder_ == null) {
+          greeters_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          greetersBuilder_.clear();
+        }
+        return this;
+      }
+
+      @java.lang.Override
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchRequest_descriptor;
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchRequest getDefaultInstanceForType() {
+        return com.example.grpc.protos.Greeting.GreetBatchRequest.getDefaultInstance();
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchRequest build() {
+        com.example.grpc.protos.Greeting.GreetBatchRequest result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchRequest buildPartial() {
+        com.example.grpc.protos.Greeting.GreetBatchRequest result = new com.example.grpc.protos.Greeting.GreetBatchRequest(this);
+        int from_bitField0_ = bitField0_;
+        if (greetersBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) != 0)) {
+            greeters_ = java.util.Collections.unmodifiableList(greeters_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.greeters_ = greeters_;
+        } else {
+          result.greeters_ = greetersBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      @java.lang.Override
+      public Builder clone() {
+        return super.clone();
+      }
+      @java.lang.Override
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.setField(field, value);
+      }
+      @java.lang.Override
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return super.clearField(field);
+      }
+      @java.lang.Override
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return super.clearOneof(oneof);
+      }
+      @java.lang.Override
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return super.setRepeatedField(field, index, value);
+      }
+      @java.lang.Override
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.addRepeatedField(field, value);
+      }
+      @java.lang.Override
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.example.grpc.protos.Greeting.GreetBatchRequest) {
+          return mergeFrom((com.example.grpc.protos.Greeting.GreetBatchRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.example.grpc.protos.Greeting.GreetBatchRequest other) {
+        if (other == com.example.grpc.protos.Greeting.GreetBatchRequest.getDefaultInstance()) return this;
+        if (greetersBuilder_ == null) {
+          if (!other.greeters_.isEmpty()) {
+            if (greeters_.isEmpty()) {
+              greeters_ = other.greeters_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureGreetersIsMutable();
+              greeters_.addAll(other.greeters_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.greeters_.isEmpty()) {
+            if (greetersBuilder_.isEmpty()) {
+              greetersBuilder_.dispose();
+              greetersBuilder_ = null;
+              greeters_ = other.greeters_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              greetersBuilder_ = 
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getGreetersFieldBuilder() : null;
+            } else {
+              greetersBuilder_.addAllMessages(other.greeters_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      @java.lang.Override
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      @java.lang.Override
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.example.grpc.protos.Greeting.GreetBatchRequest parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.example.grpc.protos.Greeting.GreetBatchRequest) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private java.util.List<com.example.grpc.protos.Greeting.Greeter> greeters_ =
+        java.util.Collections.emptyList();
+      private void ensureGreetersIsMutable() {
+        if (!((bitField0_ & 0x00000001) != 0)) {
+          greeters_ = new java.util.ArrayList<com.example.grpc.protos.Greeting.Greeter>(greeters_);
+          bitField0_ |= 0x00000001;
+         }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          com.example.grpc.protos.Greeting.Greeter, com.example.grpc.protos.Greeting.Greeter.Builder, com.example.grpc.protos.Greeting.GreeterOrBuilder> greetersBuilder_;
+
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public java.util.List<com.example.grpc.protos.Greeting.Greeter> getGreetersList() {
+        if (greetersBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(greeters_);
+        } else {
+          return greetersBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public int getGreetersCount() {
+        if (greetersBuilder_ == null) {
+          return greeters_.size();
+        } else {
+          return greetersBuilder_.getCount();
+        }
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.Greeter getGreeters(int index) {
+        if (greetersBuilder_ == null) {
+          return greeters_.get(index);
+        } else {
+          return greetersBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder setGreeters(
+          int index, com.example.grpc.protos.Greeting.Greeter value) {
+        if (greetersBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureGreetersIsMutable();
+          greeters_.set(index, value);
+          onChanged();
+        } else {
+          greetersBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder setGreeters(
+          int index, com.example.grpc.protos.Greeting.Greeter.Builder builderForValue) {
+        if (greetersBuilder_ == null) {
+          ensureGreetersIsMutable();
+          greeters_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          greetersBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder addGreeters(com.example.grpc.protos.Greeting.Greeter value) {
+        if (greetersBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureGreetersIsMutable();
+          greeters_.add(value);
+          onChanged();
+        } else {
+          greetersBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder addGreeters(
+          int index, com.example.grpc.protos.Greeting.Greeter value) {
+        if (greetersBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureGreetersIsMutable();
+          greeters_.add(index, value);
+          onChanged();
+        } else {
+          greetersBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder addGreeters(
+          com.example.grpc.protos.Greeting.Greeter.Builder builderForValue) {
+        if (greetersBuilder_ == null) {
+          ensureGreetersIsMutable();
+          greeters_.add(builderForValue.build());
+          onChanged();
+        } else {
+          greetersBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder addGreeters(
+          int index, com.example.grpc.protos.Greeting.Greeter.Builder builderForValue) {
+        if (greetersBuilder_ == null) {
+          ensureGreetersIsMutable();
+          greeters_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          greetersBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder addAllGreeters(
+          java.lang.Iterable<? extends com.example.grpc.protos.Greeting.Greeter> values) {
+        if (greetersBuilder_ == null) {
+          ensureGreetersIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, greeters_);
+          onChanged();
+        } else {
+          greetersBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder clearGreeters() {
+        if (greetersBuilder_ == null) {
+          greeters_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          greetersBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public Builder removeGreeters(int index) {
+        if (greetersBuilder_ == null) {
+          ensureGreetersIsMutable();
+          greeters_.remove(index);
+          onChanged();
+        } else {
+          greetersBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.Greeter.Builder getGreetersBuilder(
+          int index) {
+        return getGreetersFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreeterOrBuilder getGreetersOrBuilder(
+          int index) {
+        if (greetersBuilder_ == null) {
+          return greeters_.get(index);  } else {
+          return greetersBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public java.util.List<? extends com.example.grpc.protos.Greeting.GreeterOrBuilder> 
+           getGreetersOrBuilderList() {
+        if (greetersBuilder_ != null) {
+          return greetersBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(greeters_);
+        }
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.Greeter.Builder addGreetersBuilder() {
+        return getGreetersFieldBuilder().addBuilder(
+            com.example.grpc.protos.Greeting.Greeter.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.Greeter.Builder addGreetersBuilder(
+          int index) {
+        return getGreetersFieldBuilder().addBuilder(
+            index, com.example.grpc.protos.Greeting.Greeter.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .example.greeting.Greeter greeters = 1;</code>
+       */
+      public java.util.List<com.example.grpc.protos.Greeting.Greeter.Builder> 
+           getGreetersBuilderList() {
+        return getGreetersFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          com.example.grpc.protos.Greeting.Greeter, com.example.grpc.protos.Greeting.Greeter.Builder, com.example.grpc.protos.Greeting.GreeterOrBuilder> 
+          getGreetersFieldBuilder() {
+        if (greetersBuilder_ == null) {
+          greetersBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              com.example.grpc.protos.Greeting.Greeter, com.example.grpc.protos.Greeting.Greeter.Builder, com.example.grpc.protos.Greeting.GreeterOrBuilder>(
+                  greeters_,
+                  ((bitField0_ & 0x00000001) != 0),
+                  getParentForChildren(),
+                  isClean());
+          greeters_ = null;
+        }
+        return greetersBuilder_;
+      }
+      @java.lang.Override
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      @java.lang.Override
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:example.greeting.GreetBatchRequest)
+    }
+
+    // @@protoc_insertion_point(class_scope:example.greeting.GreetBatchRequest)
+    private static final com.example.grpc.protos.Greeting.GreetBatchRequest DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new com.example.grpc.protos.Greeting.GreetBatchRequest();
+    }
+
+    public static com.example.grpc.protos.Greeting.GreetBatchRequest getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    private static final com.google.protobuf.Parser<GreetBatchRequest>
+        PARSER = new com.google.protobuf.AbstractParser<GreetBatchRequest>() {
+      @java.lang.Override
+      public GreetBatchRequest parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new GreetBatchRequest(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<GreetBatchRequest> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<GreetBatchRequest> getParserForType() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.example.grpc.protos.Greeting.GreetBatchRequest getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface GreetBatchResponseOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:example.greeting.GreetBatchResponse)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    java.util.List<com.example.grpc.protos.Greeting.GreetResponse> 
+        getResultsList();
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    com.example.grpc.protos.Greeting.GreetResponse getResults(int index);
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    int getResultsCount();
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    java.util.List<? extends com.example.grpc.protos.Greeting.GreetResponseOrBuilder> 
+        getResultsOrBuilderList();
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    com.example.grpc.protos.Greeting.GreetResponseOrBuilder getResultsOrBuilder(
+        int index);
+  }
+  /**
+   * Protobuf type {@code example.greeting.GreetBatchResponse}
+   */
+  public  static final class GreetBatchResponse extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:example.greeting.GreetBatchResponse)
+      GreetBatchResponseOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use GreetBatchResponse.newBuilder() to construct.
+    private GreetBatchResponse(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private GreetBatchResponse() {
+      results_ = java.util.Collections.emptyList();
+    }
+
+    @java.lang.Override
+    @SuppressWarnings({"unused"})
+    protected java.lang.Object newInstance(
+        UnusedPrivateParameter unused) {
+      return new GreetBatchResponse();
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private GreetBatchResponse(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new java.lang.NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) != 0)) {
+                results_ = new java.util.ArrayList<com.example.grpc.protos.Greeting.GreetResponse>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              results_.add(
+                  input.readMessage(com.example.grpc.protos.Greeting.GreetResponse.parser(), extensionRegistry));
+              break;
+            }
+            default: {
+              if (!parseUnknownField(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) != 0)) {
+          results_ = java.util.Collections.unmodifiableList(results_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchResponse_descriptor;
+    }
+
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchResponse_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.example.grpc.protos.Greeting.GreetBatchResponse.class, com.example.grpc.protos.Greeting.GreetBatchResponse.Builder.class);
+    }
+
+    public static final int RESULTS_FIELD_NUMBER = 1;
+    private java.util.List<com.example.grpc.protos.Greeting.GreetResponse> results_;
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    public java.util.List<com.example.grpc.protos.Greeting.GreetResponse> getResultsList() {
+      return results_;
+    }
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    public java.util.List<? extends com.example.grpc.protos.Greeting.GreetResponseOrBuilder> 
+        getResultsOrBuilderList() {
+      return results_;
+    }
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    public int getResultsCount() {
+      return results_.size();
+    }
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    public com.example.grpc.protos.Greeting.GreetResponse getResults(int index) {
+      return results_.get(index);
+    }
+    /**
+     * <pre>
+     * One result per greeter, in request order
+     * </pre>
+     *
+     * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+     */
+    public com.example.grpc.protos.Greeting.GreetResponseOrBuilder getResultsOrBuilder(
+        int index) {
+      return results_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+    @java.lang.Override
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    @java.lang.Override
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      for (int i = 0; i < results_.size(); i++) {
+        output.writeMessage(1, results_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    @java.lang.Override
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      for (int i = 0; i < results_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, results_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.example.grpc.protos.Greeting.GreetBatchResponse)) {
+        return super.equals(obj);
+      }
+      com.example.grpc.protos.Greeting.GreetBatchResponse other = (com.example.grpc.protos.Greeting.GreetBatchResponse) obj;
+
+      if (!getResultsList()
+          .equals(other.getResultsList())) return false;
+      if (!unknownFields.equals(other.unknownFields)) return false;
+      return true;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getResultsCount() > 0) {
+        hash = (37 * hash) + RESULTS_FIELD_NUMBER;
+        hash = (53 * hash) + getResultsList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    @java.lang.Override
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(com.example.grpc.protos.Greeting.GreetBatchResponse prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    @java.lang.Override
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code example.greeting.GreetBatchResponse}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:example.greeting.GreetBatchResponse)
+        com.example.grpc.protos.Greeting.GreetBatchResponseOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchResponse_descriptor;
+      }
+
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchResponse_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.example.grpc.protos.Greeting.GreetBatchResponse.class, com.example.grpc.protos.Greeting.GreetBatchResponse.Builder.class);
+      }
+
+      // Construct using com.example.grpc.protos.Greeting.GreetBatchResponse.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getResultsFieldBuilder();
+        }
+      }
+      @java.lang.Override
+      public Builder clear() {
+        super.clear();
+        if (resultsBuilder_ == null) {
+          results_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          resultsBuilder_.clear();
+        }
+        return this;
+      }
+
+      @java.lang.Override
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.example.grpc.protos.Greeting.internal_static_example_greeting_GreetBatchResponse_descriptor;
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchResponse getDefaultInstanceForType() {
+        return com.example.grpc.protos.Greeting.GreetBatchResponse.getDefaultInstance();
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchResponse build() {
+        com.example.grpc.protos.Greeting.GreetBatchResponse result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      @java.lang.Override
+      public com.example.grpc.protos.Greeting.GreetBatchResponse buildPartial() {
+        com.example.grpc.protos.Greeting.GreetBatchResponse result = new com.example.grpc.protos.Greeting.GreetBatchResponse(this);
+        int from_bitField0_ = bitField0_;
+        if (resultsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) != 0)) {
+            results_ = java.util.Collections.unmodifiableList(results_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.results_ = results_;
+        } else {
+          result.results_ = resultsBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      @java.lang.Override
+      public Builder clone() {
+        return super.clone();
+      }
+      @java.lang.Override
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.setField(field, value);
+      }
+      @java.lang.Override
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return super.clearField(field);
+      }
+      @java.lang.Override
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return super.clearOneof(oneof);
+      }
+      @java.lang.Override
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return super.setRepeatedField(field, index, value);
+      }
+      @java.lang.Override
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.addRepeatedField(field, value);
+      }
+      @java.lang.Override
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.example.grpc.protos.Greeting.GreetBatchResponse) {
+          return mergeFrom((com.example.grpc.protos.Greeting.GreetBatchResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.example.grpc.protos.Greeting.GreetBatchResponse other) {
+        if (other == com.example.grpc.protos.Greeting.GreetBatchResponse.getDefaultInstance()) return this;
+        if (resultsBuilder_ == null) {
+          if (!other.results_.isEmpty()) {
+            if (results_.isEmpty()) {
+              results_ = other.results_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureResultsIsMutable();
+              results_.addAll(other.results_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.results_.isEmpty()) {
+            if (resultsBuilder_.isEmpty()) {
+              resultsBuilder_.dispose();
+              resultsBuilder_ = null;
+              results_ = other.results_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              resultsBuilder_ = 
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getResultsFieldBuilder() : null;
+            } else {
+              resultsBuilder_.addAllMessages(other.results_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      @java.lang.Override
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      @java.lang.Override
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.example.grpc.protos.Greeting.GreetBatchResponse parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.example.grpc.protos.Greeting.GreetBatchResponse) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private java.util.List<com.example.grpc.protos.Greeting.GreetResponse> results_ =
+        java.util.Collections.emptyList();
+      private void ensureResultsIsMutable() {
+        if (!((bitField0_ & 0x00000001) != 0)) {
+          results_ = new java.util.ArrayList<com.example.grpc.protos.Greeting.GreetResponse>(results_);
+          bitField0_ |= 0x00000001;
+         }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          com.example.grpc.protos.Greeting.GreetResponse, com.example.grpc.protos.Greeting.GreetResponse.Builder, com.example.grpc.protos.Greeting.GreetResponseOrBuilder> resultsBuilder_;
+
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public java.util.List<com.example.grpc.protos.Greeting.GreetResponse> getResultsList() {
+        if (resultsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(results_);
+        } else {
+          return resultsBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public int getResultsCount() {
+        if (resultsBuilder_ == null) {
+          return results_.size();
+        } else {
+          return resultsBuilder_.getCount();
+        }
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreetResponse getResults(int index) {
+        if (resultsBuilder_ == null) {
+          return results_.get(index);
+        } else {
+          return resultsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder setResults(
+          int index, com.example.grpc.protos.Greeting.GreetResponse value) {
+        if (resultsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResultsIsMutable();
+          results_.set(index, value);
+          onChanged();
+        } else {
+          resultsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder setResults(
+          int index, com.example.grpc.protos.Greeting.GreetResponse.Builder builderForValue) {
+        if (resultsBuilder_ == null) {
+          ensureResultsIsMutable();
+          results_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          resultsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder addResults(com.example.grpc.protos.Greeting.GreetResponse value) {
+        if (resultsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResultsIsMutable();
+          results_.add(value);
+          onChanged();
+        } else {
+          resultsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder addResults(
+          int index, com.example.grpc.protos.Greeting.GreetResponse value) {
+        if (resultsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResultsIsMutable();
+          results_.add(index, value);
+          onChanged();
+        } else {
+          resultsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder addResults(
+          com.example.grpc.protos.Greeting.GreetResponse.Builder builderForValue) {
+        if (resultsBuilder_ == null) {
+          ensureResultsIsMutable();
+          results_.add(builderForValue.build());
+          onChanged();
+        } else {
+          resultsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder addResults(
+          int index, com.example.grpc.protos.Greeting.GreetResponse.Builder builderForValue) {
+        if (resultsBuilder_ == null) {
+          ensureResultsIsMutable();
+          results_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          resultsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder addAllResults(
+          java.lang.Iterable<? extends com.example.grpc.protos.Greeting.GreetResponse> values) {
+        if (resultsBuilder_ == null) {
+          ensureResultsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, results_);
+          onChanged();
+        } else {
+          resultsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder clearResults() {
+        if (resultsBuilder_ == null) {
+          results_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          resultsBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public Builder removeResults(int index) {
+        if (resultsBuilder_ == null) {
+          ensureResultsIsMutable();
+          results_.remove(index);
+          onChanged();
+        } else {
+          resultsBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreetResponse.Builder getResultsBuilder(
+          int index) {
+        return getResultsFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreetResponseOrBuilder getResultsOrBuilder(
+          int index) {
+        if (resultsBuilder_ == null) {
+          return results_.get(index);  } else {
+          return resultsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public java.util.List<? extends com.example.grpc.protos.Greeting.GreetResponseOrBuilder> 
+           getResultsOrBuilderList() {
+        if (resultsBuilder_ != null) {
+          return resultsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(results_);
+        }
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreetResponse.Builder addResultsBuilder() {
+        return getResultsFieldBuilder().addBuilder(
+            com.example.grpc.protos.Greeting.GreetResponse.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public com.example.grpc.protos.Greeting.GreetResponse.Builder addResultsBuilder(
+          int index) {
+        return getResultsFieldBuilder().addBuilder(
+            index, com.example.grpc.protos.Greeting.GreetResponse.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * One result per greeter, in request order
+       * </pre>
+       *
+       * <code>repeated .example.greeting.GreetResponse results = 1;</code>
+       */
+      public java.util.List<com.example.grpc.protos.Greeting.GreetResponse.Builder> 
+           getResultsBuilderList() {
+        return getResultsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          com.example.grpc.protos.Greeting.GreetResponse, com.example.grpc.protos.Greeting.GreetResponse.Builder, com.example.grpc.protos.Greeting.GreetResponseOrBuilder> 
+          getResultsFieldBuilder() {
+        if (resultsBuilder_ == null) {
+          resultsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              com.example.grpc.protos.Greeting.GreetResponse, com.example.grpc.protos.Greeting.GreetResponse.Builder, com.example.grpc.protos.Greeting.GreetResponseOrBuilder>(
+                  results_,
+                  ((bitField0_ & 0x00000001) != 0),
+                  getParentForChildren(),
+                  isClean());
+          results_ = null;
+        }
+        return resultsBuilder_;
+      }
+      @java.lang.Override
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      @java.lang.Override
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:example.greeting.GreetBatchResponse)
+    }
+
+    // @@protoc_insertion_point(class_scope:example.greeting.GreetBatchResponse)
+    private static final com.example.grpc.protos.Greeting.GreetBatchResponse DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new com.example.grpc.protos.Greeting.GreetBatchResponse();
+    }
+
+    public static com.example.grpc.protos.Greeting.GreetBatchResponse getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    private static final com.google.protobuf.Parser<GreetBatchResponse>
+        PARSER = new com.google.protobuf.AbstractParser<GreetBatchResponse>() {
+      @java.lang.Override
+      public GreetBatchResponse parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new GreetBatchResponse(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<GreetBatchResponse> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<GreetBatchResponse> getParserForType() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.example.grpc.protos.Greeting.GreetBatchResponse getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_example_greeting_Greeter_descriptor;
   private static final 
@@ -1927,6 +3615,16 @@ public final class Greeting {
   private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_example_greeting_GreetResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_example_greeting_GreetBatchRequest_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_example_greeting_GreetBatchRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_example_greeting_GreetBatchResponse_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_example_greeting_GreetBatchResponse_fieldAccessorTable;
 
   public static com.google.protobuf.Descriptors.FileDescriptor
       getDescriptor() {
@@ -1940,17 +3638,23 @@ public final class Greeting {
       "eeter\022\022\n\nfirst_name\030\001 \001(\t\022\021\n\tlast_name\030\002" +
       " \001(\t\":\n\014GreetRequest\022*\n\007greeter\030\001 \001(\0132\031." +
       "example.greeting.Greeter\"\037\n\rGreetRespons" +
-      "e\022\016\n\006result\030\001 \001(\t2\333\002\n\014GreetService\022J\n\005Gr" +
-      "eet\022\036.example.greeting.GreetRequest\032\037.ex" +
-      "ample.greeting.GreetResponse\"\000\022U\n\016GreetM" +
-      "anyTimes\022\036.example.greeting.GreetRequest" +
-      "\032\037.example.greeting.GreetResponse\"\0000\001\022P\n" +
-      "\tLongGreet\022\036.example.greeting.GreetReque" +
-      "st\032\037.example.greeting.GreetResponse\"\000(\001\022" +
-      "V\n\rGreetEveryone\022\036.example.greeting.Gree" +
-      "tRequest\032\037.example.greeting.GreetRespons" +
-      "e\"\000(\0010\001B)\n\027com.example.grpc.protosZ\016exam" +
-      "ple/protosb\006proto3"
+      "e\022\016\n\006result\030\001 \001(\t\"@\n\021GreetBatchRequest\022+" +
+      "\n\010greeters\030\001 \003(\0132\031.example.greeting.Gree" +
+      "ter\"F\n\022GreetBatchResponse\0220\n\007results\030\001 \003" +
+      "(\0132\037.example.greeting.GreetResponse2\266\003\n\014" +
+      "GreetService\022J\n\005Greet\022\036.example.greeting" +
+      ".GreetRequest\032\037.example.greeting.GreetRe" +
+      "sponse\"\000\022U\n\016GreetManyTimes\022\036.example.gre" +
+      "eting.GreetRequest\032\037.example.greeting.Gr" +
+      "eetResponse\"\0000\001\022P\n\tLongGreet\022\036.example.g" +
+      "reeting.GreetRequest\032\037.example.greeting." +
+      "GreetResponse\"\000(\001\022V\n\rGreetEveryone\022\036.exa" +
+      "mple.greeting.GreetRequest\032\037.example.gre" +
+      "eting.GreetResponse\"\000(\0010\001\022Y\n\nGreetBatch\022" +
+      "#.example.greeting.GreetBatchRequest\032$.e" +
+      "xample.greeting.GreetBatchResponse\"\000B)\n\027" +
+      "com.example.grpc.protosZ\016example/protosb" +
+      "\006proto3"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -1974,6 +3678,18 @@ public final class Greeting {
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_example_greeting_GreetResponse_descriptor,
         new java.lang.String[] { "Result", });
+    internal_static_example_greeting_GreetBatchRequest_descriptor =
+      getDescriptor().getMessageTypes().get(3);
+    internal_static_example_greeting_GreetBatchRequest_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_example_greeting_GreetBatchRequest_descriptor,
+        new java.lang.String[] { "Greeters", });
+    internal_static_example_greeting_GreetBatchResponse_descriptor =
+      getDescriptor().getMessageTypes().get(4);
+    internal_static_example_greeting_GreetBatchResponse_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_example_greeting_GreetBatchResponse_descriptor,
+        new java.lang.String[] { "Results", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -0,0 +1,196 @@
+package com.example.grpc;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.grpc.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The stream tracers of {@link RpcEventTracing}, which turn calls into {@link RpcEvent}s.
+ * <p>
+ * Only compiled on JDK 11 and later, by the {@code flight-recorder} profile, and only loaded by
+ * {@link RpcEventTracing} when the JVM has Flight Recorder.
+ */
+final class FlightRecorderTracers implements RpcEventTracing.Tracers {
+    private static final Metadata.Key<String> TOKEN = Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Override
+    public ServerStreamTracer.Factory newServerTracerFactory(String side) {
+        return new ServerTracerFactory(side);
+    }
+
+    @Override
+    public ClientInterceptor newClientInterceptor() {
+        return new ClientTracing();
+    }
+
+    /**
+     * One traced call, updated from the transport and the application threads.
+     */
+    private static final class Call {
+        private final RpcEvent event;
+        private final String side;
+        private final String method;
+        private final String token;
+        private final long start = System.nanoTime();
+        private final AtomicInteger requestMessages = new AtomicInteger();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicInteger responseMessages = new AtomicInteger();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private volatile long firstRequest;
+        private volatile long firstResponse;
+
+        Call(RpcEvent event, String side, String method, Metadata headers) {
+            this.event = event;
+            this.side = side;
+            this.method = method;
+            this.token = headers.get(TOKEN);
+            event.begin();
+        }
+
+        void request(int seqNo) {
+            requestMessages.incrementAndGet();
+            if (seqNo == 0) {
+                firstRequest = System.nanoTime() - start;
+            }
+        }
+
+        void response(int seqNo) {
+            responseMessages.incrementAndGet();
+            if (seqNo == 0) {
+                firstResponse = System.nanoTime() - start;
+            }
+        }
+
+        void requestBytes(long bytes) {
+            requestBytes.addAndGet(bytes);
+        }
+
+        void responseBytes(long bytes) {
+            responseBytes.addAndGet(bytes);
+        }
+
+        void closed(Status status) {
+            event.end();
+            if (!event.shouldCommit()) {
+                return;
+            }
+            event.side = side;
+            event.method = method;
+            event.status = status.getCode().name();
+            event.tokenHash = token == null ? ""
+                    : Hashing.sha256().hashString(token, Charsets.UTF_8).toString().substring(0, 16);
+            event.requestMessages = requestMessages.get();
+            event.requestBytes = requestBytes.get();
+            event.responseMessages = responseMessages.get();
+            event.responseBytes = responseBytes.get();
+            event.timeToFirstRequest = firstRequest;
+            event.timeToFirstResponse = firstResponse;
+            event.commit();
+        }
+    }
+
+    private static final class ServerTracerFactory extends ServerStreamTracer.Factory {
+        private static final ServerStreamTracer DISABLED = new ServerStreamTracer() {
+        };
+
+        private final String side;
+
+        ServerTracerFactory(String side) {
+            this.side = side;
+        }
+
+        @Override
+        public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+            RpcEvent event = new RpcEvent();
+            if (!event.isEnabled()) {
+                return DISABLED;
+            }
+            final Call call = new Call(event, side, fullMethodName, headers);
+            return new ServerStreamTracer() {
+                @Override
+                public void inboundMessage(int seqNo) {
+                    call.request(seqNo);
+                }
+
+                @Override
+                public void inboundWireSize(long bytes) {
+                    call.requestBytes(bytes);
+                }
+
+                @Override
+                public void outboundMessage(int seqNo) {
+                    call.response(seqNo);
+                }
+
+                @Override
+                public void outboundWireSize(long bytes) {
+                    call.responseBytes(bytes);
+                }
+
+                @Override
+                public void streamClosed(Status status) {
+                    call.closed(status);
+                }
+            };
+        }
+    }
+
+    /**
+     * Attaches a tracer factory to each call, the client tracers are not told the method otherwise.
+     */
+    private static final class ClientTracing implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                MethodDescriptor<ReqT, RespT> method,
+                CallOptions callOptions,
+                Channel next) {
+            if (!new RpcEvent().isEnabled()) {
+                return next.newCall(method, callOptions);
+            }
+            return next.newCall(method, callOptions.withStreamTracerFactory(
+                    new ClientTracerFactory(method.getFullMethodName())));
+        }
+    }
+
+    private static final class ClientTracerFactory extends ClientStreamTracer.Factory {
+        private final String method;
+
+        ClientTracerFactory(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+            final Call call = new Call(new RpcEvent(), "client", method, headers);
+            return new ClientStreamTracer() {
+                @Override
+                public void outboundMessage(int seqNo) {
+                    call.request(seqNo);
+                }
+
+                @Override
+                public void outboundWireSize(long bytes) {
+                    call.requestBytes(bytes);
+                }
+
+                @Override
+                public void inboundMessage(int seqNo) {
+                    call.response(seqNo);
+                }
+
+                @Override
+                public void inboundWireSize(long bytes) {
+                    call.responseBytes(bytes);
+                }
+
+                @Override
+                public void streamClosed(Status status) {
+                    call.closed(status);
+                }
+            };
+        }
+    }
+}
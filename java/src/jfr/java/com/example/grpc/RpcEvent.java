@@ -0,0 +1,64 @@
+package com.example.grpc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event of one gRPC call, as seen by the server or by the client, see {@link RpcEventTracing}.
+ * <p>
+ * Only calls slower than the threshold are recorded, 10 ms unless a recording's settings say otherwise,
+ * for example {@code <event name="com.example.grpc.Rpc"><setting name="threshold">0 ms</setting></event>}
+ * in a custom {@code .jfc} file. Loading this class needs a JVM with Flight Recorder.
+ */
+@Name("com.example.grpc.Rpc")
+@Label("gRPC Call")
+@Category("gRPC")
+@Description("A gRPC call, from the start of the stream until it closed")
+@StackTrace(false)
+@Threshold("10 ms")
+class RpcEvent extends Event {
+    @Label("Side")
+    @Description("server, client or warm-up")
+    String side;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    String status;
+
+    @Label("Token Hash")
+    @Description("First 8 bytes of the SHA-256 of the token header in hex, empty without a token")
+    String tokenHash;
+
+    @Label("Request Messages")
+    int requestMessages;
+
+    @Label("Request Size")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Messages")
+    int responseMessages;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Time to First Request")
+    @Description("From the start of the stream until the first request message was sent or received, 0 without one")
+    @Timespan
+    long timeToFirstRequest;
+
+    @Label("Time to First Response")
+    @Description("From the start of the stream until the first response message was sent or received, 0 without one")
+    @Timespan
+    long timeToFirstResponse;
+}
@@ -0,0 +1,195 @@
+package com.example.grpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.ChannelOption;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pooled buffer allocator and leak detection settings shared by the server and the client.
+ * <p>
+ * gRPC leaves the allocator to Netty, which pools buffers in {@code 2 * cores} arenas of 16 MiB chunks
+ * and caches recently freed buffers per thread. Fewer arenas and smaller chunks lower the memory a
+ * mostly idle process holds on to, at the price of more contention between the event loops. Thread
+ * caches can be limited to the event loops, which free most of the buffers, or switched off. Netty only
+ * recognizes its own {@code FastThreadLocalThread}s as event loop threads, which
+ * {@link #eventLoopThreadFactory(String)} creates.
+ * <p>
+ * Leak detection samples one buffer in 128 at the {@code simple} level, which is cheap enough for
+ * production and reports a leak when a sampled buffer is garbage collected without having been released.
+ * Detected leaks are counted in {@code allocator.leaks} as long as the settings are created before
+ * the first buffer is, since Netty creates its leak detector once.
+ */
+final class BufferAllocation {
+    static final String THREAD_CACHES_ALL = "all";
+    static final String THREAD_CACHES_EVENT_LOOPS = "event-loops";
+    static final String THREAD_CACHES_NONE = "none";
+
+    private final int arenas;
+    private final int chunkSize;
+    private final String threadCaches;
+    private PooledByteBufAllocator allocator;
+
+    /**
+     * @param arenas        heap and direct arenas each, 0 for the Netty default
+     * @param chunkSizeKiB  chunk size in KiB, a power of two of at least the 8 KiB page, 0 for the Netty default
+     * @param threadCaches  threads caching freed buffers, {@value #THREAD_CACHES_ALL},
+     *                      {@value #THREAD_CACHES_EVENT_LOOPS} or {@value #THREAD_CACHES_NONE}
+     * @param leakDetection Netty leak detection level, disabled, simple, advanced or paranoid, null to keep
+     *                      the level of the {@code io.netty.leakDetection.level} property
+     */
+    BufferAllocation(int arenas, int chunkSizeKiB, String threadCaches, String leakDetection) {
+        int pageSize = PooledByteBufAllocator.defaultPageSize();
+        if (chunkSizeKiB > 0 && (Integer.bitCount(chunkSizeKiB) != 1 || chunkSizeKiB * 1024 < pageSize)) {
+            throw new IllegalArgumentException("Chunk size must be a power of two of at least "
+                    + pageSize / 1024 + " KiB: " + chunkSizeKiB);
+        }
+        if (!THREAD_CACHES_ALL.equals(threadCaches) && !THREAD_CACHES_EVENT_LOOPS.equals(threadCaches)
+                && !THREAD_CACHES_NONE.equals(threadCaches)) {
+            throw new IllegalArgumentException("Unknown thread caches: " + threadCaches);
+        }
+        this.arenas = arenas;
+        this.chunkSize = chunkSizeKiB * 1024;
+        this.threadCaches = threadCaches;
+        if (leakDetection != null) {
+            ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(leakDetection.toUpperCase(Locale.ROOT)));
+        }
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new CountingLeakDetectorFactory());
+    }
+
+    NettyServerBuilder configure(NettyServerBuilder builder) {
+        registerGauges("server", allocator());
+        return builder.withChildOption(ChannelOption.ALLOCATOR, allocator());
+    }
+
+    NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        registerGauges("client", allocator());
+        return builder.withOption(ChannelOption.ALLOCATOR, allocator());
+    }
+
+    /**
+     * @return the allocator shared by all builders configured with these settings, Netty's default one
+     * when nothing differs from its defaults
+     */
+    synchronized PooledByteBufAllocator allocator() {
+        if (allocator == null) {
+            if (arenas == 0 && chunkSize == 0 && THREAD_CACHES_ALL.equals(threadCaches)) {
+                allocator = PooledByteBufAllocator.DEFAULT;
+            } else {
+                int pageSize = PooledByteBufAllocator.defaultPageSize();
+                boolean caching = !THREAD_CACHES_NONE.equals(threadCaches);
+                allocator = new PooledByteBufAllocator(
+                        PlatformDependent.directBufferPreferred(),
+                        arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumHeapArena(),
+                        arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumDirectArena(),
+                        pageSize,
+                        chunkSize > 0
+                                ? Integer.numberOfTrailingZeros(chunkSize / pageSize)
+                                : PooledByteBufAllocator.defaultMaxOrder(),
+                        caching ? PooledByteBufAllocator.defaultTinyCacheSize() : 0,
+                        caching ? PooledByteBufAllocator.defaultSmallCacheSize() : 0,
+                        caching ? PooledByteBufAllocator.defaultNormalCacheSize() : 0,
+                        THREAD_CACHES_ALL.equals(threadCaches));
+            }
+        }
+        return allocator;
+    }
+
+    /**
+     * @param nameFormat thread names, with {@code %d} for the thread number
+     * @return a factory of daemon threads for event loops, which get a thread cache with
+     * {@value #THREAD_CACHES_EVENT_LOOPS}
+     */
+    static ThreadFactory eventLoopThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder()
+                .setThreadFactory(new DefaultThreadFactory("grpc-event-loop", true))
+                .setDaemon(true)
+                .setNameFormat(nameFormat)
+                .build();
+    }
+
+    private static void registerGauges(String prefix, PooledByteBufAllocator allocator) {
+        final PooledByteBufAllocatorMetric metric = allocator.metric();
+        Metrics.gauge(prefix + ".allocator.used_direct_bytes", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return metric.usedDirectMemory();
+            }
+        });
+        Metrics.gauge(prefix + ".allocator.used_heap_bytes", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return metric.usedHeapMemory();
+            }
+        });
+        Metrics.gauge(prefix + ".allocator.chunk_size", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return metric.chunkSize();
+            }
+        });
+        Metrics.gauge(prefix + ".allocator.thread_caches", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return metric.numThreadLocalCaches();
+            }
+        });
+        registerArenaGauges(prefix + ".allocator.direct_arena.", metric.directArenas());
+        registerArenaGauges(prefix + ".allocator.heap_arena.", metric.heapArenas());
+    }
+
+    private static void registerArenaGauges(String prefix, List<PoolArenaMetric> arenas) {
+        for (int i = 0; i < arenas.size(); i++) {
+            final PoolArenaMetric arena = arenas.get(i);
+            Metrics.gauge(prefix + i + ".active_allocations", new Metrics.Gauge() {
+                @Override
+                public double value() {
+                    return arena.numActiveAllocations();
+                }
+            });
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (arenas > 0 ? arenas + " arena(s)" : "default arenas")
+                + ", " + (chunkSize > 0 ? chunkSize / 1024 + " KiB chunks" : "default chunks")
+                + ", thread caches: " + threadCaches
+                + ", leak detection: " + ResourceLeakDetector.getLevel().name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Counts the leaks Netty reports, which it otherwise only logs.
+     */
+    private static final class CountingLeakDetectorFactory extends ResourceLeakDetectorFactory {
+        @Override
+        @SuppressWarnings("deprecation")
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval,
+                                                                   long maxActive) {
+            return new ResourceLeakDetector<T>(resource, samplingInterval) {
+                @Override
+                protected void reportTracedLeak(String resourceType, String records) {
+                    Metrics.counter("allocator.leaks").incrementAndGet();
+                    super.reportTracedLeak(resourceType, records);
+                }
+
+                @Override
+                protected void reportUntracedLeak(String resourceType) {
+                    Metrics.counter("allocator.leaks").incrementAndGet();
+                    super.reportUntracedLeak(resourceType);
+                }
+            };
+        }
+    }
+}
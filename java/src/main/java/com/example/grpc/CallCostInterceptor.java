@@ -0,0 +1,193 @@
+package com.example.grpc;
+
+import io.grpc.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the bytes allocated and the CPU time spent by the handlers of a sample of the calls.
+ * <p>
+ * A sampled call reads the allocation and CPU counters of the current thread around the start of the call
+ * and around every listener callback, which is where the handler runs and sends its responses, and adds
+ * up the differences. gRPC runs the callbacks of a call one after the other, not necessarily on the same
+ * thread. Work the handler hands off to other threads is not included. Totals are kept per method, as
+ * {@code server.call_cost.<method>.calls}, {@code .allocated_bytes} and {@code .cpu_nanos}, along with the
+ * per call averages {@code .bytes_per_call} and {@code .cpu_micros_per_call}.
+ * <p>
+ * Registered first, so that the handler alone is measured and not the other interceptors. Sampled
+ * {@link WarmUp} calls are measured but not recorded.
+ */
+class CallCostInterceptor implements ServerInterceptor {
+    private final double sampleRate;
+    private final com.sun.management.ThreadMXBean threads;
+    private final ConcurrentMap<String, MethodCost> methods = new ConcurrentHashMap<String, MethodCost>();
+
+    /**
+     * @param sampleRate fraction of the calls to measure, between 0 and 1
+     */
+    CallCostInterceptor(double sampleRate) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                || !threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            throw new IllegalStateException("This JVM does not measure thread allocations and CPU time");
+        }
+        this.threads = (com.sun.management.ThreadMXBean) threadMXBean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        threads.setThreadCpuTimeEnabled(true);
+        this.sampleRate = sampleRate;
+    }
+
+    private static final class MethodCost {
+        private final AtomicLong calls;
+        private final AtomicLong allocatedBytes;
+        private final AtomicLong cpuNanos;
+
+        MethodCost(String method) {
+            final String prefix = "server.call_cost." + method;
+            calls = Metrics.counter(prefix + ".calls");
+            allocatedBytes = Metrics.counter(prefix + ".allocated_bytes");
+            cpuNanos = Metrics.counter(prefix + ".cpu_nanos");
+            Metrics.gauge(prefix + ".bytes_per_call", new Metrics.Gauge() {
+                @Override
+                public double value() {
+                    return Math.round(Metrics.ratio(prefix + ".allocated_bytes", prefix + ".calls"));
+                }
+            });
+            Metrics.gauge(prefix + ".cpu_micros_per_call", new Metrics.Gauge() {
+                @Override
+                public double value() {
+                    return Math.round(Metrics.ratio(prefix + ".cpu_nanos", prefix + ".calls") / 1000);
+                }
+            });
+        }
+    }
+
+    private MethodCost methodCost(String method) {
+        MethodCost cost = methods.get(method);
+        if (cost == null) {
+            MethodCost created = new MethodCost(method);
+            cost = methods.putIfAbsent(method, created);
+            if (cost == null) {
+                cost = created;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Costs of one sampled call, only touched by the callback running at the time.
+     */
+    private final class CallCost {
+        /**
+         * Null for a synthetic call.
+         */
+        private final MethodCost method;
+        private long allocatedBytes;
+        private long cpuNanos;
+        private long enteredBytes;
+        private long enteredCpuNanos;
+
+        CallCost(MethodCost method) {
+            this.method = method;
+        }
+
+        void enter() {
+            enteredBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            enteredCpuNanos = threads.getCurrentThreadCpuTime();
+        }
+
+        void exit() {
+            allocatedBytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - enteredBytes;
+            cpuNanos += threads.getCurrentThreadCpuTime() - enteredCpuNanos;
+        }
+
+        void record() {
+            if (method == null) {
+                return;
+            }
+            method.calls.incrementAndGet();
+            method.allocatedBytes.addAndGet(allocatedBytes);
+            method.cpuNanos.addAndGet(cpuNanos);
+        }
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return next.startCall(call, headers);
+        }
+        String fullMethodName = call.getMethodDescriptor().getFullMethodName();
+        final CallCost cost = new CallCost(WarmUp.isSynthetic() ? null
+                : methodCost(fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1)));
+        ServerCall.Listener<ReqT> listener;
+        cost.enter();
+        try {
+            listener = next.startCall(call, headers);
+        } finally {
+            cost.exit();
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                cost.enter();
+                try {
+                    super.onMessage(message);
+                } finally {
+                    cost.exit();
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                cost.enter();
+                try {
+                    super.onHalfClose();
+                } finally {
+                    cost.exit();
+                }
+            }
+
+            @Override
+            public void onReady() {
+                cost.enter();
+                try {
+                    super.onReady();
+                } finally {
+                    cost.exit();
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                cost.enter();
+                try {
+                    super.onComplete();
+                } finally {
+                    cost.exit();
+                    cost.record();
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                cost.enter();
+                try {
+                    super.onCancel();
+                } finally {
+                    cost.exit();
+                    cost.record();
+                }
+            }
+        };
+    }
+}
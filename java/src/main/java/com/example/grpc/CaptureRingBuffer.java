@@ -0,0 +1,138 @@
+package com.example.grpc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer of variable sized records, written by any number of threads and read by a single one,
+ * without locks.
+ * <p>
+ * A writer claims space by advancing the tail with a compare-and-set, copies its record into the claimed
+ * space and then commits it by publishing the record length in a commit slot, one per
+ * {@link #ALIGNMENT} bytes of the buffer. The reader takes records at the head in claim order, each as
+ * soon as its slot shows the length, clears the slot and advances the head, which frees the space for the
+ * writers. A record that would run past the end of the buffer is preceded by padding up to the end and
+ * stored at the start. When the buffer is full, a write fails at once rather than wait for the reader.
+ */
+class CaptureRingBuffer {
+    /**
+     * Records start at multiples of this many bytes.
+     */
+    static final int ALIGNMENT = 32;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    /**
+     * Record lengths at the slots where records start, negative for padding and 0 where nothing was committed.
+     */
+    private final AtomicIntegerArray commits;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    interface RecordHandler {
+        /**
+         * @param buffer the record between its position and its limit, valid during the call only
+         */
+        void onRecord(ByteBuffer buffer);
+    }
+
+    /**
+     * @param capacity size in bytes, a power of two of at least {@link #ALIGNMENT}
+     */
+    CaptureRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < ALIGNMENT) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least " + ALIGNMENT
+                    + ": " + capacity);
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.commits = new AtomicIntegerArray(capacity / ALIGNMENT);
+    }
+
+    private static int aligned(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * @return the largest record that can be written, half of the capacity
+     */
+    int maxRecordLength() {
+        return capacity / 2;
+    }
+
+    /**
+     * @return bytes claimed and not yet taken by the reader
+     */
+    long used() {
+        return tail.get() - head.get();
+    }
+
+    /**
+     * Copies a record into the buffer, may be called by any thread.
+     *
+     * @return false when the record does not fit into the free space
+     */
+    boolean write(byte[] record) {
+        int length = record.length;
+        if (length == 0 || length > maxRecordLength()) {
+            return false;
+        }
+        int required = aligned(length);
+        long claimed;
+        int index;
+        int padding;
+        do {
+            claimed = tail.get();
+            index = (int) (claimed & mask);
+            padding = required > capacity - index ? capacity - index : 0;
+            if (claimed + padding + required - head.get() > capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + padding + required));
+        if (padding > 0) {
+            commits.lazySet(index / ALIGNMENT, -padding);
+            index = 0;
+        }
+        ByteBuffer target = buffer.duplicate();
+        target.position(index);
+        target.put(record);
+        // Publishes the record bytes to the reader
+        commits.lazySet(index / ALIGNMENT, length);
+        return true;
+    }
+
+    /**
+     * Hands the committed records at the head to the handler, must only be called by the reader thread.
+     * Stops at the first record that is claimed and not committed yet.
+     *
+     * @return the number of records read
+     */
+    int read(RecordHandler handler) {
+        ByteBuffer source = buffer.duplicate();
+        long position = head.get();
+        int records = 0;
+        while (true) {
+            int index = (int) (position & mask);
+            int length = commits.get(index / ALIGNMENT);
+            if (length == 0) {
+                break;
+            }
+            commits.set(index / ALIGNMENT, 0);
+            if (length < 0) {
+                position += -length;
+            } else {
+                source.limit(index + length);
+                source.position(index);
+                handler.onRecord(source);
+                source.clear();
+                position += aligned(length);
+                records++;
+            }
+            head.lazySet(position);
+        }
+        return records;
+    }
+}
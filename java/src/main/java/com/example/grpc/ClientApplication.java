@@ -2,40 +2,123 @@ package com.example.grpc;
 
 import com.example.grpc.protos.GreetServiceGrpc;
 import com.example.grpc.protos.Greeting;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.grpc.*;
-import io.grpc.netty.GrpcSslContexts;
+import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.ClientCalls;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 import org.apache.commons.cli.*;
 
 
 import javax.net.ssl.SSLException;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ClientApplication {
     private static final Logger logger = Logger.getLogger(ClientApplication.class.getName());
+    private static final TlsSessionTracker tlsSessionTracker = new TlsSessionTracker();
+    private static final String IN_PROCESS_SERVER_NAME = "greet-service";
 
     private static String host;
     private static String port;
     private static String caFilePath;
+    private static String domainSocketPath;
+    private static boolean inProcess;
+    private static String flowControlWindow;
+    private static String maxInboundMessageSize;
+    private static boolean bdp;
+    private static String allocatorArenas;
+    private static String allocatorChunkSize;
+    private static String allocatorThreadCaches;
+    private static String leakDetection;
+    private static String keepAliveTime;
+    private static String keepAliveTimeout;
+    private static String reconnectJitterMillis;
+    private static String certFilePath;
+    private static String keyFilePath;
+    private static String maxAttempts;
+    private static boolean hedge;
+    private static String hedgePercentile;
+    private static String retryBudgetPercent;
+    private static boolean singleFlight;
+    private static String batchMaxDelayMillis;
+    private static String batchMaxSize;
+    private static String count;
+    private static String distinctNames;
+    private static String tlsSessionCacheSize;
+    private static String tlsSessionTimeout;
+    private static String sslProvider;
+    private static String ciphers;
 
     private final ManagedChannel channel;
+    /**
+     * The event loop of the domain socket channel, which the client owns, null for the other channels.
+     */
+    private final EventLoopGroup eventLoopGroup;
     private final GreetServiceGrpc.GreetServiceBlockingStub blockingStub;
 
-    private ClientApplication(String host, int port, SslContext sslContext) {
-        this(NettyChannelBuilder.forAddress(host, port)
-                .overrideAuthority("localhost")  /* Only for using provided test certs. */
-                .sslContext(sslContext)
-                .build());
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-client-scheduler-%d").build());
+    private HedgingCaller<Greeting.GreetRequest, Greeting.GreetResponse> greetCaller;
+    private SingleFlight<Greeting.GreetRequest, Greeting.GreetResponse> greetSingleFlight;
+    private GreetBatcher greetBatcher;
+
+    /**
+     * When {@code host} is a comma separated list of {@code host} or {@code host:port}, connects to every
+     * backend and balances calls by the load they report.
+     *
+     * @param tokenAuth attach the {@code token} header to every call; not needed when {@code sslContext}
+     *                  presents a client certificate, the server then authenticates the connection instead
+     */
+    private ClientApplication(String host, int port, SslContext sslContext, FlowControl flowControl,
+                              ConnectionManagement connectionManagement, BufferAllocation bufferAllocation,
+                              boolean tokenAuth) {
+        this(host.contains(",")
+                        ? buildLoadBalancedChannel(host, port, sslContext, flowControl, connectionManagement,
+                                bufferAllocation)
+                        : buildChannel(host, port, sslContext, flowControl, connectionManagement, bufferAllocation,
+                                new ConnectionWatcher(connectionManagement.getReconnectJitterMillis())),
+                tokenAuth);
+    }
+
+    /**
+     * Calls a server started with {@link ServerApplication#startInProcess(String, Executor)} in this JVM.
+     */
+    public ClientApplication(String inProcessServerName) {
+        this(InProcessChannelBuilder.forName(inProcessServerName).directExecutor().build(), true);
     }
 
-    private ClientApplication(ManagedChannel channel) {
+    private ClientApplication(ManagedChannel channel, boolean tokenAuth) {
+        this(channel, null, tokenAuth);
+    }
+
+    private ClientApplication(ManagedChannel channel, EventLoopGroup eventLoopGroup, boolean tokenAuth) {
         this.channel = channel;
+        this.eventLoopGroup = eventLoopGroup;
+        if (!tokenAuth) {
+            blockingStub = GreetServiceGrpc.newBlockingStub(channel);
+            return;
+        }
         blockingStub = GreetServiceGrpc.newBlockingStub(channel).withCallCredentials(new CallCredentials() {
 
             @Override
@@ -56,10 +139,89 @@ public class ClientApplication {
         });
     }
 
+    /**
+     * Connects over a Unix domain socket, the server identifies the caller by its user id. The channel runs
+     * on an event loop of its own, shut down along with the client.
+     */
+    private static ClientApplication overDomainSocket(String path, FlowControl flowControl,
+                                                      BufferAllocation bufferAllocation) {
+        if (!Epoll.isAvailable()) {
+            throw new IllegalStateException("Unix domain sockets need the native epoll transport",
+                    Epoll.unavailabilityCause());
+        }
+        EventLoopGroup eventLoopGroup = new EpollEventLoopGroup(1,
+                BufferAllocation.eventLoopThreadFactory("grpc-uds-%d"));
+        return new ClientApplication(buildDomainSocketChannel(path, eventLoopGroup, flowControl, bufferAllocation),
+                eventLoopGroup, false);
+    }
+
+    private static ManagedChannel buildDomainSocketChannel(String path, EventLoopGroup eventLoopGroup,
+                                                           FlowControl flowControl,
+                                                           BufferAllocation bufferAllocation) {
+        return RpcEventTracing.configure(bufferAllocation.configure(
+                flowControl.configure(NettyChannelBuilder.forAddress(new DomainSocketAddress(path)))))
+                .channelType(EpollDomainSocketChannel.class)
+                // gRPC enables TCP keepalive by default, which does not apply to domain sockets
+                .withOption(ChannelOption.SO_KEEPALIVE, null)
+                .eventLoopGroup(eventLoopGroup)
+                .usePlaintext()
+                .build();
+    }
+
+    private static ManagedChannel buildChannel(String host, int port, SslContext sslContext,
+                                               FlowControl flowControl, ConnectionManagement connectionManagement,
+                                               BufferAllocation bufferAllocation, ConnectionWatcher connectionWatcher) {
+        return connectionWatcher.watch(RpcEventTracing.configure(bufferAllocation.configure(
+                connectionManagement.configure(flowControl.configure(NettyChannelBuilder.forAddress(host, port)))))
+                .overrideAuthority("localhost")  /* Only for using provided test certs. */
+                .sslContext(sslContext)
+                .intercept(tlsSessionTracker, connectionWatcher)
+                .build());
+    }
+
+    private static ManagedChannel buildLoadBalancedChannel(String hosts, int defaultPort, SslContext sslContext,
+                                                           FlowControl flowControl,
+                                                           ConnectionManagement connectionManagement,
+                                                           BufferAllocation bufferAllocation) {
+        List<ConnectionWatcher> connectionWatchers = new ArrayList<ConnectionWatcher>();
+        for (String target : hosts.split(",")) {
+            target = target.trim();
+            ConnectionWatcher connectionWatcher = new ConnectionWatcher(connectionManagement.getReconnectJitterMillis());
+            int separator = target.lastIndexOf(':');
+            if (separator > 0) {
+                buildChannel(target.substring(0, separator), Integer.parseInt(target.substring(separator + 1)),
+                        sslContext, flowControl, connectionManagement, bufferAllocation, connectionWatcher);
+            } else {
+                buildChannel(target, defaultPort, sslContext, flowControl, connectionManagement, bufferAllocation,
+                        connectionWatcher);
+            }
+            connectionWatchers.add(connectionWatcher);
+        }
+        return new LoadBalancedChannel(connectionWatchers);
+    }
+
+    /**
+     * Sessions are cached per server host and port and resumed when a channel reconnects, as long as the
+     * same context is reused. Only the JDK provider caches client sessions in this Netty version.
+     *
+     * @param sessionCacheSize client sessions to cache, 0 for the provider default
+     * @param sessionTimeout   seconds a cached session stays eligible for resumption, 0 for the default
+     * @param provider         TLS provider, see {@link TlsTuning#selectProvider(String)}
+     * @param ciphers          preferred cipher family, see {@link TlsTuning#cipherSuites(String)}
+     */
     private static SslContext buildSslContext(String trustCertCollectionFilePath,
                                               String clientCertChainFilePath,
-                                              String clientPrivateKeyFilePath) throws SSLException {
-        SslContextBuilder builder = GrpcSslContexts.forClient();
+                                              String clientPrivateKeyFilePath,
+                                              long sessionCacheSize,
+                                              long sessionTimeout,
+                                              SslProvider provider,
+                                              String ciphers) throws SSLException {
+        if (provider != SslProvider.JDK && sessionCacheSize > 0) {
+            logger.warning("TLS provider " + provider + " does not resume client sessions, use jdk for resumption");
+        }
+        SslContextBuilder builder = TlsTuning.configure(SslContextBuilder.forClient(), provider, ciphers)
+                .sessionCacheSize(sessionCacheSize)
+                .sessionTimeout(sessionTimeout);
 
         if (trustCertCollectionFilePath != null) {
             builder.trustManager(new File(trustCertCollectionFilePath));
@@ -72,11 +234,84 @@ public class ClientApplication {
         return builder.build();
     }
 
-    private void shutdown() throws InterruptedException {
+    /**
+     * Retries, and optionally hedges, {@code Greet} which is idempotent.
+     *
+     * @param maxAttempts   total attempts per call including the original one
+     * @param hedge         send a hedge to another backend once the call is slower than {@code percentile}
+     * @param percentile    percentile of recent latencies used as the hedging delay
+     * @param budgetPercent retries and hedges allowed as a percentage of calls
+     */
+    private void configureRetries(int maxAttempts, boolean hedge, double percentile, double budgetPercent) {
+        greetCaller = new HedgingCaller<Greeting.GreetRequest, Greeting.GreetResponse>(
+                channel,
+                GreetServiceGrpc.getGreetMethod(),
+                blockingStub.getCallOptions(),
+                scheduler,
+                new RetryBudget(budgetPercent, 10),
+                maxAttempts,
+                hedge,
+                percentile,
+                5);
+    }
+
+    /**
+     * Lets concurrent identical greetings share a single call to the server.
+     */
+    private void enableSingleFlight() {
+        greetSingleFlight = new SingleFlight<Greeting.GreetRequest, Greeting.GreetResponse>(
+                "client.greet.single_flight.");
+    }
+
+    /**
+     * Sends concurrent greetings as {@code GreetBatch} calls of up to {@code maxBatchSize} greeters, waiting
+     * at most {@code maxDelayMillis} for a batch to fill up.
+     */
+    private void enableBatching(long maxDelayMillis, int maxBatchSize) {
+        greetBatcher = new GreetBatcher(
+                GreetServiceGrpc.newFutureStub(channel).withCallCredentials(blockingStub.getCallOptions().getCredentials()),
+                scheduler,
+                maxDelayMillis,
+                TimeUnit.MILLISECONDS,
+                maxBatchSize);
+    }
+
+    private ListenableFuture<Greeting.GreetResponse> greetAsync(final Greeting.GreetRequest request) {
+        if (greetSingleFlight != null) {
+            return greetSingleFlight.execute(request, new SingleFlight.Loader<Greeting.GreetResponse>() {
+                @Override
+                public ListenableFuture<Greeting.GreetResponse> load() {
+                    return callGreet(request);
+                }
+            });
+        }
+        return callGreet(request);
+    }
+
+    private ListenableFuture<Greeting.GreetResponse> callGreet(Greeting.GreetRequest request) {
+        if (greetBatcher != null) {
+            return greetBatcher.greet(request.getGreeter());
+        }
+        if (greetCaller != null) {
+            return greetCaller.call(request);
+        }
+        return ClientCalls.futureUnaryCall(
+                channel.newCall(GreetServiceGrpc.getGreetMethod(), blockingStub.getCallOptions()), request);
+    }
+
+    public void shutdown() throws InterruptedException {
         channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+        }
+        scheduler.shutdownNow();
+        String metrics = Metrics.snapshot();
+        if (!metrics.isEmpty()) {
+            logger.info("Client metrics:\n" + metrics);
+        }
     }
 
-    private void greet(String firstName, String lastName) {
+    public void greet(String firstName, String lastName) {
         Greeting.Greeter greeter = Greeting.Greeter.newBuilder().setFirstName(firstName).setLastName(lastName).build();
         logger.info("Will try to greet " + greeter + " ...");
 
@@ -84,29 +319,185 @@ public class ClientApplication {
         Greeting.GreetResponse response;
 
         try {
-            response = blockingStub.greet(request);
+            if (greetCaller != null || greetSingleFlight != null || greetBatcher != null) {
+                response = Futures.getUnchecked(greetAsync(request));
+            } else {
+                response = blockingStub.greet(request);
+            }
 
         } catch (StatusRuntimeException e) {
             logger.log(Level.WARNING, "RPC failed: {0}", e.getStatus());
             return;
+        } catch (UncheckedExecutionException e) {
+            logger.log(Level.WARNING, "RPC failed: {0}", Status.fromThrowable(e));
+            return;
         }
 
         logger.info("Response from server: " + response.getResult());
     }
 
+    /**
+     * Greets {@code count} times concurrently and waits for all of the responses.
+     *
+     * @param distinctNames number of different first names used in turn, 0 for a different one every time
+     */
+    public void greetConcurrently(String firstName, String lastName, int count, int distinctNames) {
+        Greeting.GreetRequest.Builder request = Greeting.GreetRequest.newBuilder();
+        List<ListenableFuture<Greeting.GreetResponse>> responses = new ArrayList<ListenableFuture<Greeting.GreetResponse>>();
+        for (int i = 0; i < count; i++) {
+            request.setGreeter(Greeting.Greeter.newBuilder().setFirstName(firstName + (distinctNames > 0 ? i % distinctNames : i))
+                    .setLastName(lastName));
+            responses.add(greetAsync(request.build()));
+        }
+
+        int failed = 0;
+        for (ListenableFuture<Greeting.GreetResponse> response : responses) {
+            try {
+                Futures.getUnchecked(response);
+            } catch (UncheckedExecutionException e) {
+                failed++;
+            }
+        }
+        logger.info("Greeted " + count + " times, " + failed + " failed");
+    }
+
     private static void parseCommandLine(String[] args) {
         Options options = new Options();
 
-        Option option = new Option(null, "host", true, "server hostname or ip");
+        Option option = new Option(null, "host", true,
+                "server hostname or ip, or a comma separated list of host[:port] to balance across");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "port", true, "server port, required unless --uds is given");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "cacert", true, "trusted CA certificate, required unless --uds is given");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "uds", true,
+                "connect to the server's Unix domain socket instead, plaintext and authenticated by the user id");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "cert", true, "client certificate for mutual TLS, replaces the token header");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "key", true, "client key file for mutual TLS");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "in-process", false, "host the service in this JVM and call it in-process");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "flow-control-window", true,
+                "initial HTTP/2 receive window in bytes, 0 for the gRPC default of 1 MiB");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-inbound-message-size", true,
+                "largest accepted response in bytes, 0 for the gRPC default of 4 MiB");
         option.setRequired(false);
         options.addOption(option);
 
-        option = new Option(null, "port", true, "server port");
-        option.setRequired(true);
+        option = new Option(null, "bdp", false, "grow the receive window to the measured bandwidth-delay product");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-arenas", true,
+                "pooled buffer arenas, heap and direct each, 0 for the Netty default of 2 per core");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-chunk-size", true,
+                "pooled buffer chunk size in KiB, a power of two of at least 8, 0 for the Netty default of 16 MiB");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-thread-caches", true,
+                "threads caching freed buffers, all, event-loops or none");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "leak-detection", true,
+                "buffer leak detection, disabled, simple (samples 1 in 128), advanced or paranoid");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "keepalive-time", true,
+                "seconds without reads before pinging the server, 0 to disable; at least the server's permitted time");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "keepalive-timeout", true, "seconds to wait for a ping acknowledgement, 0 for the default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "reconnect-jitter", true,
+                "upper bound in milliseconds of the random delay before reconnecting after a GOAWAY");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-attempts", true,
+                "attempts per Greet call including retries and hedges, 2 with hedge");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "hedge", false, "hedge Greet calls slower than the hedge percentile");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "hedge-percentile", true, "latency percentile after which a hedge is sent");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "retry-budget", true, "retries and hedges as a percentage of calls");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "single-flight", false, "coalesce identical in-flight greetings");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "distinct-names", true,
+                "names the concurrent greetings cycle through, 0 for a new name per greeting");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "batch-max-delay", true,
+                "coalesce concurrent greetings into GreetBatch calls, waiting at most this many milliseconds");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "batch-max-size", true, "greeters per GreetBatch call");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "count", true, "number of concurrent greetings");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "tls-session-cache-size", true,
+                "TLS sessions cached for resumption on reconnect, 0 to disable");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "tls-session-timeout", true, "seconds a cached TLS session can be resumed");
+        option.setRequired(false);
         options.addOption(option);
 
-        option = new Option(null, "cacert", true, "trusted CA certificate");
-        option.setRequired(true);
+        option = new Option(null, "ssl-provider", true,
+                "TLS provider, jdk or openssl (falls back to jdk); jdk by default, unlike the server, since only"
+                        + " the jdk provider resumes client TLS sessions with this Netty version");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "ciphers", true, "preferred cipher family, auto, aes-gcm or chacha20");
+        option.setRequired(false);
         options.addOption(option);
 
         CommandLineParser parser = new DefaultParser();
@@ -119,6 +510,52 @@ public class ClientApplication {
             host = cmd.getOptionValue("host", "localhost");
             port = cmd.getOptionValue("port");
             caFilePath = cmd.getOptionValue("cacert", "");
+            domainSocketPath = cmd.getOptionValue("uds");
+            inProcess = cmd.hasOption("in-process");
+            flowControlWindow = cmd.getOptionValue("flow-control-window", "0");
+            maxInboundMessageSize = cmd.getOptionValue("max-inbound-message-size", "0");
+            bdp = cmd.hasOption("bdp");
+            allocatorArenas = cmd.getOptionValue("allocator-arenas", "0");
+            allocatorChunkSize = cmd.getOptionValue("allocator-chunk-size", "0");
+            allocatorThreadCaches = cmd.getOptionValue("allocator-thread-caches", BufferAllocation.THREAD_CACHES_ALL);
+            leakDetection = cmd.getOptionValue("leak-detection");
+            keepAliveTime = cmd.getOptionValue("keepalive-time", "0");
+            keepAliveTimeout = cmd.getOptionValue("keepalive-timeout", "0");
+            reconnectJitterMillis = cmd.getOptionValue("reconnect-jitter", "1000");
+            if (domainSocketPath == null && !inProcess && (port == null || !cmd.hasOption("cacert"))) {
+                throw new MissingOptionException("Missing required options: port, cacert");
+            }
+            certFilePath = cmd.getOptionValue("cert");
+            keyFilePath = cmd.getOptionValue("key");
+            hedge = cmd.hasOption("hedge");
+            // A hedge is a second attempt
+            maxAttempts = cmd.getOptionValue("max-attempts", hedge ? "2" : "1");
+            if (hedge && Integer.parseInt(maxAttempts) < 2) {
+                throw new ParseException("hedge needs max-attempts of at least 2");
+            }
+            hedgePercentile = cmd.getOptionValue("hedge-percentile", "95");
+            retryBudgetPercent = cmd.getOptionValue("retry-budget", "10");
+            singleFlight = cmd.hasOption("single-flight");
+            batchMaxDelayMillis = cmd.getOptionValue("batch-max-delay");
+            batchMaxSize = cmd.getOptionValue("batch-max-size", "100");
+            if (batchMaxDelayMillis != null && (hedge || Integer.parseInt(maxAttempts) > 1)) {
+                // Batched greetings bypass the retrying and hedging caller
+                throw new ParseException("batch-max-delay cannot be combined with hedge or max-attempts");
+            }
+            count = cmd.getOptionValue("count", "1");
+            // Repeated names give single-flight something to coalesce
+            distinctNames = cmd.getOptionValue("distinct-names", singleFlight ? "10" : "0");
+            tlsSessionCacheSize = cmd.getOptionValue("tls-session-cache-size", "256");
+            // Not openssl like the server, which the client would not resume sessions with
+            sslProvider = cmd.getOptionValue("ssl-provider", TlsTuning.PROVIDER_JDK);
+            ciphers = cmd.getOptionValue("ciphers", TlsTuning.CIPHERS_AUTO);
+            if (!TlsTuning.isProvider(sslProvider)) {
+                throw new ParseException("ssl-provider must be openssl or jdk");
+            }
+            if (!TlsTuning.isCipherPreference(ciphers)) {
+                throw new ParseException("ciphers must be auto, aes-gcm or chacha20");
+            }
+            tlsSessionTimeout = cmd.getOptionValue("tls-session-timeout", "3600");
         } catch (ParseException e) {
             System.out.println(e.getMessage());
             formatter.printHelp("utility-name", options);
@@ -130,15 +567,67 @@ public class ClientApplication {
     public static void main(String[] args) throws Exception {
         parseCommandLine(args);
 
-        ClientApplication client = new ClientApplication(
-                host,
-                Integer.parseInt(port),
-                buildSslContext(caFilePath, null, null));
+        // Before anything allocates a buffer, so that leaks are counted
+        BufferAllocation bufferAllocation = new BufferAllocation(
+                Integer.parseInt(allocatorArenas),
+                Integer.parseInt(allocatorChunkSize),
+                allocatorThreadCaches,
+                leakDetection);
+        FlowControl flowControl = new FlowControl(
+                Integer.parseInt(flowControlWindow),
+                Integer.parseInt(maxInboundMessageSize),
+                bdp);
+        Server inProcessServer = null;
+        if (inProcess) {
+            inProcessServer = ServerApplication.startInProcess(IN_PROCESS_SERVER_NAME, MoreExecutors.directExecutor());
+        }
+        ClientApplication client = inProcess
+                ? new ClientApplication(IN_PROCESS_SERVER_NAME)
+                : domainSocketPath != null
+                ? overDomainSocket(domainSocketPath, flowControl, bufferAllocation)
+                : new ClientApplication(
+                        host,
+                        Integer.parseInt(port),
+                        buildSslContext(caFilePath, certFilePath, keyFilePath,
+                                Long.parseLong(tlsSessionCacheSize),
+                                Long.parseLong(tlsSessionTimeout),
+                                TlsTuning.selectProvider(sslProvider),
+                                ciphers),
+                        flowControl,
+                        new ConnectionManagement(
+                                Long.parseLong(keepAliveTime),
+                                Long.parseLong(keepAliveTimeout),
+                                Long.parseLong(reconnectJitterMillis)),
+                        bufferAllocation,
+                        certFilePath == null || keyFilePath == null);
+
+        if (Integer.parseInt(maxAttempts) > 1) {
+            client.configureRetries(
+                    Integer.parseInt(maxAttempts),
+                    hedge,
+                    Double.parseDouble(hedgePercentile),
+                    Double.parseDouble(retryBudgetPercent));
+        }
+
+        if (singleFlight) {
+            client.enableSingleFlight();
+        }
+
+        if (batchMaxDelayMillis != null) {
+            client.enableBatching(Long.parseLong(batchMaxDelayMillis), Integer.parseInt(batchMaxSize));
+        }
 
         try {
-            client.greet("John", "Doe");
+            if (Integer.parseInt(count) > 1) {
+                client.greetConcurrently("John", "Doe", Integer.parseInt(count), Integer.parseInt(distinctNames));
+            } else {
+                client.greet("John", "Doe");
+            }
         } finally {
             client.shutdown();
+            if (inProcessServer != null) {
+                inProcessServer.shutdown();
+            }
         }
     }
 }
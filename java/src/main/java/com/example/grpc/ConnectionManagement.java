@@ -0,0 +1,107 @@
+package com.example.grpc;
+
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keepalive and connection lifetime settings shared by the server and the client.
+ * <p>
+ * A maximum connection age makes the server send GOAWAY to every connection after a while (gRPC adds
+ * +/-10% jitter so clients do not all leave at once) and lets calls in flight finish within the grace
+ * period. Clients then reconnect, which is what moves long-lived connections onto instances added by a
+ * scale-out. Keepalive pings detect dead peers behind proxies that silently drop idle connections.
+ * Limiting the concurrent calls per connection makes clients queue further calls on their side instead of
+ * the server holding them in memory. Durations are in seconds, 0 keeps the gRPC default, which for the
+ * concurrent calls is unlimited. Only the keepalive settings and the reconnect jitter, see
+ * {@link ConnectionWatcher}, apply to clients.
+ */
+final class ConnectionManagement {
+    private final long keepAliveTime;
+    private final long keepAliveTimeout;
+    private final long maxConnectionIdle;
+    private final long maxConnectionAge;
+    private final long maxConnectionAgeGrace;
+    private final long permitKeepAliveTime;
+    private final int maxConcurrentCalls;
+    private final long reconnectJitterMillis;
+
+    /**
+     * @param keepAliveTime         seconds without reads before a keepalive ping is sent
+     * @param keepAliveTimeout      seconds to wait for the ping acknowledgement before closing the connection
+     * @param maxConnectionIdle     seconds a connection without calls is kept open
+     * @param maxConnectionAge      seconds after which a connection is sent GOAWAY
+     * @param maxConnectionAgeGrace seconds calls in flight get to finish after the GOAWAY
+     * @param permitKeepAliveTime   most frequent client keepalive the server tolerates, in seconds
+     * @param maxConcurrentCalls    calls a client may have open on one connection, advertised as
+     *                              {@code SETTINGS_MAX_CONCURRENT_STREAMS}
+     */
+    ConnectionManagement(long keepAliveTime, long keepAliveTimeout, long maxConnectionIdle,
+                         long maxConnectionAge, long maxConnectionAgeGrace, long permitKeepAliveTime,
+                         int maxConcurrentCalls) {
+        this(keepAliveTime, keepAliveTimeout, maxConnectionIdle, maxConnectionAge, maxConnectionAgeGrace,
+                permitKeepAliveTime, maxConcurrentCalls, 0);
+    }
+
+    /**
+     * Client side settings.
+     *
+     * @param reconnectJitterMillis upper bound of the random delay before reconnecting after a GOAWAY
+     */
+    ConnectionManagement(long keepAliveTime, long keepAliveTimeout, long reconnectJitterMillis) {
+        this(keepAliveTime, keepAliveTimeout, 0, 0, 0, 0, 0, reconnectJitterMillis);
+    }
+
+    private ConnectionManagement(long keepAliveTime, long keepAliveTimeout, long maxConnectionIdle,
+                                 long maxConnectionAge, long maxConnectionAgeGrace, long permitKeepAliveTime,
+                                 int maxConcurrentCalls, long reconnectJitterMillis) {
+        this.keepAliveTime = keepAliveTime;
+        this.keepAliveTimeout = keepAliveTimeout;
+        this.maxConnectionIdle = maxConnectionIdle;
+        this.maxConnectionAge = maxConnectionAge;
+        this.maxConnectionAgeGrace = maxConnectionAgeGrace;
+        this.permitKeepAliveTime = permitKeepAliveTime;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.reconnectJitterMillis = reconnectJitterMillis;
+    }
+
+    long getReconnectJitterMillis() {
+        return reconnectJitterMillis;
+    }
+
+    NettyServerBuilder configure(NettyServerBuilder builder) {
+        if (keepAliveTime > 0) {
+            builder.keepAliveTime(keepAliveTime, TimeUnit.SECONDS);
+        }
+        if (keepAliveTimeout > 0) {
+            builder.keepAliveTimeout(keepAliveTimeout, TimeUnit.SECONDS);
+        }
+        if (maxConnectionIdle > 0) {
+            builder.maxConnectionIdle(maxConnectionIdle, TimeUnit.SECONDS);
+        }
+        if (maxConnectionAge > 0) {
+            builder.maxConnectionAge(maxConnectionAge, TimeUnit.SECONDS);
+        }
+        if (maxConnectionAgeGrace > 0) {
+            builder.maxConnectionAgeGrace(maxConnectionAgeGrace, TimeUnit.SECONDS);
+        }
+        if (permitKeepAliveTime > 0) {
+            builder.permitKeepAliveTime(permitKeepAliveTime, TimeUnit.SECONDS);
+        }
+        if (maxConcurrentCalls > 0) {
+            builder.maxConcurrentCallsPerConnection(maxConcurrentCalls);
+        }
+        return builder;
+    }
+
+    NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        if (keepAliveTime > 0) {
+            builder.keepAliveTime(keepAliveTime, TimeUnit.SECONDS);
+        }
+        if (keepAliveTimeout > 0) {
+            builder.keepAliveTimeout(keepAliveTimeout, TimeUnit.SECONDS);
+        }
+        return builder;
+    }
+}
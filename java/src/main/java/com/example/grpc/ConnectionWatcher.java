@@ -0,0 +1,150 @@
+package com.example.grpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Follows the connectivity state of a client channel, counts connection churn and reconnects after a GOAWAY.
+ * <p>
+ * A channel that goes from READY to IDLE lost its connection to a GOAWAY, either from the server's maximum
+ * connection age, or because the connection sat idle for the server's maximum idle time or the channel's
+ * idle timeout. gRPC would only reconnect on the next call. When calls were in flight or one ended less than
+ * {@link #RECENT_CALL_MILLIS} before, the connection was in use and cannot have been closed for idleness,
+ * both idle timers being a second at the least; the watcher then connects eagerly after a random delay of
+ * up to {@code reconnectJitterMillis}, so that clients told to leave at the same time do not all come back
+ * at the same time. An idle connection stays closed until the next call. Failed connection attempts are
+ * retried by gRPC itself with exponential backoff and 20% jitter.
+ * <p>
+ * The watcher sees the calls as an interceptor of the channel it watches. Calls started with
+ * {@link #BACKGROUND_CALL}, like the health watch that stays open with the connection, are not counted.
+ */
+class ConnectionWatcher implements ClientInterceptor {
+    /**
+     * Calls ending less than this before the connection closed show that it was in use.
+     */
+    static final long RECENT_CALL_MILLIS = 1000;
+
+    /**
+     * Marks a call that does not keep the connection in use, such as a stream open for as long as the connection.
+     */
+    static final CallOptions.Key<Boolean> BACKGROUND_CALL = CallOptions.Key.createWithDefault("background", false);
+
+    private static final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-reconnect-%d").build());
+
+    private final long reconnectJitterMillis;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long lastCallEnded;
+    private volatile ManagedChannel channel;
+    private volatile ConnectivityState state;
+
+    /**
+     * @param reconnectJitterMillis upper bound of the delay before reconnecting after a GOAWAY
+     */
+    ConnectionWatcher(long reconnectJitterMillis) {
+        this.reconnectJitterMillis = reconnectJitterMillis;
+        this.lastCallEnded = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(RECENT_CALL_MILLIS);
+    }
+
+    /**
+     * Starts watching {@code channel}, which must have been built with this watcher as an interceptor.
+     *
+     * @return the channel
+     */
+    ManagedChannel watch(ManagedChannel channel) {
+        this.channel = channel;
+        this.state = channel.getState(true);
+        watch(state);
+        return channel;
+    }
+
+    ManagedChannel getChannel() {
+        return channel;
+    }
+
+    boolean isReady() {
+        return state == ConnectivityState.READY;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method,
+            CallOptions callOptions,
+            Channel next) {
+        if (callOptions.getOption(BACKGROUND_CALL)) {
+            return next.newCall(method, callOptions);
+        }
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                outstanding.incrementAndGet();
+                try {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                            responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            callEnded();
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                } catch (RuntimeException e) {
+                    callEnded();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private void callEnded() {
+        lastCallEnded = System.nanoTime();
+        outstanding.decrementAndGet();
+    }
+
+    private boolean inUse() {
+        return outstanding.get() > 0
+                || System.nanoTime() - lastCallEnded < TimeUnit.MILLISECONDS.toNanos(RECENT_CALL_MILLIS);
+    }
+
+    private void watch(final ConnectivityState current) {
+        channel.notifyWhenStateChanged(current, new Runnable() {
+            @Override
+            public void run() {
+                ConnectivityState next = channel.getState(false);
+                onStateChanged(current, next);
+                state = next;
+                if (next != ConnectivityState.SHUTDOWN) {
+                    watch(next);
+                }
+            }
+        });
+    }
+
+    private void onStateChanged(ConnectivityState from, ConnectivityState to) {
+        if (to == ConnectivityState.READY) {
+            Metrics.counter("client.connections.established").incrementAndGet();
+        } else if (to == ConnectivityState.TRANSIENT_FAILURE) {
+            Metrics.counter("client.connections.failures").incrementAndGet();
+        } else if (from == ConnectivityState.READY && to == ConnectivityState.IDLE) {
+            if (!inUse()) {
+                Metrics.counter("client.connections.idle_closes").incrementAndGet();
+                return;
+            }
+            Metrics.counter("client.connections.goaways").incrementAndGet();
+            reconnects.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (channel.getState(false) == ConnectivityState.IDLE) {
+                        Metrics.counter("client.connections.reconnects").incrementAndGet();
+                        channel.getState(true);
+                    }
+                }
+            }, ThreadLocalRandom.current().nextLong(reconnectJitterMillis + 1), TimeUnit.MILLISECONDS);
+        }
+    }
+}
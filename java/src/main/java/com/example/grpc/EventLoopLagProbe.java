@@ -0,0 +1,213 @@
+package com.example.grpc;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Measures how long a task waits before an event loop gets to run it.
+ * <p>
+ * Each {@link #probe()} submits an empty task to every event loop of the groups and records how late it ran.
+ * A loop still holding the previous probe is not probed again: its lag keeps growing until the probe runs,
+ * so a blocked loop is reported while it is blocked and not only once it recovered.
+ * <p>
+ * With a stall threshold the probe doubles as a watchdog. It probes the application executor as well and
+ * records the lags in the histograms {@code server.watchdog.event_loop_lag_millis} and
+ * {@code server.watchdog.executor_lag_millis}. A probe waiting longer than the threshold is a stall: it
+ * logs the stack of the event loop thread, which shows the blocking call, or the stacks of all executor
+ * threads, since none of them got to the probe. Each stall is logged once, while it lasts, and counted in
+ * {@code server.watchdog.stalls}. The executor threads are only known for threads created after the probe,
+ * which wraps the thread factory of the executor.
+ */
+class EventLoopLagProbe {
+    private static final Logger logger = Logger.getLogger(EventLoopLagProbe.class.getName());
+
+    /**
+     * Upper bounds of the lag histogram buckets in milliseconds.
+     */
+    static final long[] LAG_BUCKETS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private final List<Target> loops = new ArrayList<Target>();
+    /**
+     * The application executor, null without a stall threshold.
+     */
+    private final Target executor;
+    private final long stallThresholdNanos;
+
+    /**
+     * @param groups               event loops serving the connections
+     * @param executor             the application executor, before it started any thread, only probed with a
+     *                             stall threshold
+     * @param stallThresholdMillis probe lag after which the blocking threads are logged, 0 to not watch for
+     *                             stalls
+     */
+    EventLoopLagProbe(List<? extends EventExecutorGroup> groups, ThreadPoolExecutor executor,
+                      long stallThresholdMillis) {
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMillis);
+        Metrics.Histogram eventLoopLag = stallThresholdMillis > 0
+                ? Metrics.histogram("server.watchdog.event_loop_lag_millis", LAG_BUCKETS_MILLIS)
+                : null;
+        for (EventExecutorGroup group : groups) {
+            for (EventExecutor eventLoop : group) {
+                loops.add(new Target(eventLoop, eventLoopLag, null));
+            }
+        }
+        if (stallThresholdMillis <= 0) {
+            this.executor = null;
+            return;
+        }
+        final Set<Thread> workers = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final ThreadFactory threadFactory = executor.getThreadFactory();
+        executor.setThreadFactory(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = threadFactory.newThread(runnable);
+                workers.add(thread);
+                return thread;
+            }
+        });
+        this.executor = new Target(executor, Metrics.histogram("server.watchdog.executor_lag_millis",
+                LAG_BUCKETS_MILLIS), workers);
+    }
+
+    private final class Target {
+        private final Executor executor;
+        /**
+         * Histogram of the probe lags, null without a stall threshold.
+         */
+        private final Metrics.Histogram lag;
+        /**
+         * Threads of the executor, null for an event loop whose thread is taken from the probes.
+         */
+        private final Set<Thread> workers;
+        /**
+         * Submission time of the probe the target has not run yet, 0 when there is none.
+         */
+        private final AtomicLong pendingSince = new AtomicLong();
+        private volatile long lastLagNanos;
+        private volatile Thread thread;
+        /**
+         * Submission time of the probe that was reported as a stall already.
+         */
+        private long reportedSince;
+
+        Target(Executor executor, Metrics.Histogram lag, Set<Thread> workers) {
+            this.executor = executor;
+            this.lag = lag;
+            this.workers = workers;
+        }
+
+        void probe(final long now) {
+            if (isShutDown()) {
+                return;
+            }
+            long since = pendingSince.get();
+            if (since != 0) {
+                if (stallThresholdNanos > 0 && now - since > stallThresholdNanos && since != reportedSince) {
+                    reportedSince = since;
+                    reportStall(TimeUnit.NANOSECONDS.toMillis(now - since));
+                }
+                return;
+            }
+            if (!pendingSince.compareAndSet(0, now)) {
+                return;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long lagNanos = System.nanoTime() - now;
+                        lastLagNanos = lagNanos;
+                        if (lag != null) {
+                            lag.record(TimeUnit.NANOSECONDS.toMillis(lagNanos));
+                        }
+                        thread = Thread.currentThread();
+                        pendingSince.set(0);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shut down in the meantime
+                pendingSince.set(0);
+            }
+        }
+
+        long lagNanos() {
+            long since = pendingSince.get();
+            return since == 0 ? lastLagNanos : Math.max(lastLagNanos, System.nanoTime() - since);
+        }
+
+        private boolean isShutDown() {
+            return workers == null
+                    ? ((EventExecutor) executor).isShuttingDown()
+                    : ((ThreadPoolExecutor) executor).isShutdown();
+        }
+
+        private void reportStall(long lagMillis) {
+            Metrics.counter("server.watchdog.stalls").incrementAndGet();
+            StringBuilder message = new StringBuilder();
+            if (workers == null) {
+                Thread blocked = thread;
+                message.append("Event loop ").append(blocked == null ? executor : blocked.getName())
+                        .append(" has not run a task for ").append(lagMillis).append(" ms");
+                if (blocked != null) {
+                    appendStack(message, blocked);
+                }
+            } else {
+                message.append("Application executor has not started a task for ").append(lagMillis)
+                        .append(" ms, queue depth ").append(((ThreadPoolExecutor) executor).getQueue().size());
+                for (Thread worker : workers) {
+                    if (worker.isAlive()) {
+                        appendStack(message, worker);
+                    } else {
+                        workers.remove(worker);
+                    }
+                }
+            }
+            logger.warning(message.toString());
+        }
+    }
+
+    private static void appendStack(StringBuilder message, Thread thread) {
+        message.append("\n\"").append(thread.getName()).append("\" ").append(thread.getState());
+        for (StackTraceElement element : thread.getStackTrace()) {
+            message.append("\n\tat ").append(element);
+        }
+    }
+
+    /**
+     * Reports stalls and probes the event loops, and the executor with a stall threshold, again; meant to be
+     * called periodically.
+     */
+    void probe() {
+        long now = System.nanoTime();
+        for (Target loop : loops) {
+            loop.probe(now);
+        }
+        if (executor != null) {
+            executor.probe(now);
+        }
+    }
+
+    /**
+     * @return the largest lag of any loop, as of its last probe or its pending one if that is late already
+     */
+    long maxLagNanos() {
+        long max = 0;
+        for (Target loop : loops) {
+            max = Math.max(max, loop.lagNanos());
+        }
+        return max;
+    }
+}
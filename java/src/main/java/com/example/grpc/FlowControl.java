@@ -0,0 +1,160 @@
+package com.example.grpc;
+
+import io.grpc.*;
+import io.grpc.netty.InternalHandlerSettings;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+
+/**
+ * HTTP/2 flow control and message size settings shared by the server and the client.
+ * <p>
+ * The receive window caps the bytes a peer may have in flight, so a single connection moves at most
+ * one window per round trip: the 1 MiB default allows about 80 Mbit/s at 100 ms. With BDP auto-tuning
+ * the receiver measures the bandwidth-delay product with PING frames and grows the window to match,
+ * the configured window only being the starting point.
+ * <p>
+ * gRPC only offers auto-tuning through {@code InternalHandlerSettings}, a process wide hook that applies to
+ * every Netty client and server connection created afterwards in the JVM, including those built without
+ * this class, and that remembers the most recent connection of each side. It is only enabled for
+ * auto-tuning; the reported window is then the one of the most recent connection, otherwise the configured
+ * one, which does not change.
+ */
+final class FlowControl {
+    private static volatile boolean autoTuningEnabled;
+    private static volatile boolean serverConnected;
+    private static volatile boolean clientConnected;
+
+    private final int window;
+    private final int maxInboundMessageSize;
+    private final boolean autoTune;
+
+    /**
+     * @param window                initial receive window in bytes, 0 for the gRPC default
+     * @param maxInboundMessageSize largest accepted message in bytes, 0 for the gRPC default of 4 MiB
+     * @param autoTune              grow the window to the measured bandwidth-delay product
+     */
+    FlowControl(int window, int maxInboundMessageSize, boolean autoTune) {
+        this.window = window;
+        this.maxInboundMessageSize = maxInboundMessageSize;
+        this.autoTune = autoTune;
+    }
+
+    NettyServerBuilder configure(NettyServerBuilder builder) {
+        if (window > 0) {
+            builder.flowControlWindow(window);
+        }
+        if (maxInboundMessageSize > 0) {
+            builder.maxInboundMessageSize(maxInboundMessageSize);
+        }
+        configureAutoTuning();
+        if (autoTune) {
+            builder.addTransportFilter(new ServerTransportFilter() {
+                @Override
+                public Attributes transportReady(Attributes transportAttrs) {
+                    serverConnected = true;
+                    return transportAttrs;
+                }
+            });
+        }
+        Metrics.gauge("server.http2.receive_window", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return serverWindow();
+            }
+        });
+        return builder;
+    }
+
+    NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        if (window > 0) {
+            builder.flowControlWindow(window);
+        }
+        if (maxInboundMessageSize > 0) {
+            builder.maxInboundMessageSize(maxInboundMessageSize);
+        }
+        configureAutoTuning();
+        if (autoTune) {
+            builder.intercept(new ConnectionObserver());
+        }
+        Metrics.gauge("client.http2.receive_window", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return clientWindow();
+            }
+        });
+        return builder;
+    }
+
+    /**
+     * Leaves the hook alone unless auto-tuning is used, and switches auto-tuning off again for connections
+     * created afterwards by a builder without it.
+     */
+    private void configureAutoTuning() {
+        if (autoTune) {
+            autoTuningEnabled = true;
+            InternalHandlerSettings.enable(true);
+            InternalHandlerSettings.autoWindowOn(true);
+        } else if (autoTuningEnabled) {
+            InternalHandlerSettings.autoWindowOn(false);
+        }
+    }
+
+    /**
+     * @return the receive window of the server connections, with auto-tuning the one of the most recent
+     * connection in the process, 0 before the first one
+     */
+    int serverWindow() {
+        if (!autoTune) {
+            return configuredWindow();
+        }
+        return serverConnected ? InternalHandlerSettings.getLatestServerWindow() : 0;
+    }
+
+    /**
+     * @return the receive window of the client connections, with auto-tuning the one of the most recent
+     * connection in the process, 0 before the first one
+     */
+    int clientWindow() {
+        if (!autoTune) {
+            return configuredWindow();
+        }
+        return clientConnected ? InternalHandlerSettings.getLatestClientWindow() : 0;
+    }
+
+    private int configuredWindow() {
+        return window > 0 ? window : NettyServerBuilder.DEFAULT_FLOW_CONTROL_WINDOW;
+    }
+
+    /**
+     * Notes the first response headers, which arrive over a connection whose handler the hook has seen.
+     */
+    private static final class ConnectionObserver implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                MethodDescriptor<ReqT, RespT> method,
+                CallOptions callOptions,
+                Channel next) {
+            if (clientConnected) {
+                return next.newCall(method, callOptions);
+            }
+            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                            responseListener) {
+                        @Override
+                        public void onHeaders(Metadata headers) {
+                            clientConnected = true;
+                            super.onHeaders(headers);
+                        }
+                    }, headers);
+                }
+            };
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (window > 0 ? window + " B" : "default") + (autoTune ? " + BDP" : "");
+    }
+}
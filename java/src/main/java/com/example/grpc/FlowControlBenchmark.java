@@ -0,0 +1,315 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.*;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.commons.cli.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures streaming throughput for HTTP/2 window sizes across simulated round trip times.
+ * <p>
+ * Client and server share the JVM and talk plaintext through a loopback proxy that holds every chunk
+ * for half the round trip time in each direction, like a netem delay on both ends of a link with
+ * unlimited bandwidth. {@code GreetManyTimes} moves data to the client and is bounded by the client's
+ * receive window, {@code LongGreet} moves data to the server and is bounded by the server's. The
+ * {@code LongGreet} payload is carried in the last name, which the service does not echo back.
+ */
+public class FlowControlBenchmark {
+    private static final Logger logger = Logger.getLogger(FlowControlBenchmark.class.getName());
+    private static final Logger serverLogger = Logger.getLogger(ServerApplication.class.getName());
+
+    private static List<Integer> windows;
+    private static List<Integer> rtts;
+    private static int payloadSize;
+    private static long bytesPerRun;
+
+    private static final Metadata headers = new Metadata();
+
+    static {
+        headers.put(Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER), "valid-token");
+    }
+
+    /**
+     * TCP proxy delaying each direction by a fixed amount.
+     */
+    private static final class DelayProxy {
+        private final EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("delay-proxy-%d").build());
+        private final int port;
+
+        DelayProxy(final int targetPort, final long oneWayDelayMillis) throws InterruptedException {
+            final InetAddress loopback = InetAddress.getLoopbackAddress();
+            io.netty.channel.Channel listener = new ServerBootstrap()
+                    .group(eventLoopGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childOption(ChannelOption.AUTO_READ, false)
+                    .childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new ChannelInitializer<io.netty.channel.Channel>() {
+                        @Override
+                        protected void initChannel(final io.netty.channel.Channel inbound) {
+                            // Both directions run on the inbound event loop, which keeps the delayed chunks in order
+                            ChannelFuture connect = new Bootstrap()
+                                    .group(inbound.eventLoop())
+                                    .channel(NioSocketChannel.class)
+                                    .option(ChannelOption.TCP_NODELAY, true)
+                                    .handler(new DelayingRelay(inbound, oneWayDelayMillis))
+                                    .connect(loopback, targetPort);
+                            inbound.pipeline().addLast(new DelayingRelay(connect.channel(), oneWayDelayMillis));
+                            connect.addListener(new ChannelFutureListener() {
+                                @Override
+                                public void operationComplete(ChannelFuture future) {
+                                    if (future.isSuccess()) {
+                                        inbound.config().setAutoRead(true);
+                                    } else {
+                                        inbound.close();
+                                    }
+                                }
+                            });
+                        }
+                    })
+                    .bind(loopback, 0)
+                    .sync()
+                    .channel();
+            port = ((InetSocketAddress) listener.localAddress()).getPort();
+        }
+
+        void close() {
+            eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static final class DelayingRelay extends ChannelInboundHandlerAdapter {
+        private final io.netty.channel.Channel peer;
+        private final long delayMillis;
+
+        DelayingRelay(io.netty.channel.Channel peer, long delayMillis) {
+            this.peer = peer;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, final Object msg) {
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    peer.writeAndFlush(msg);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    peer.close();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    private static double greetManyTimes(GreetServiceGrpc.GreetServiceBlockingStub stub, long bytes) {
+        Greeting.GreetRequest request = Greeting.GreetRequest.newBuilder()
+                .setGreeter(Greeting.Greeter.newBuilder().setFirstName(Strings.repeat("x", payloadSize)))
+                .build();
+        long received = 0;
+        long start = System.nanoTime();
+        while (received < bytes) {
+            Iterator<Greeting.GreetResponse> responses = stub.greetManyTimes(request);
+            while (responses.hasNext()) {
+                received += responses.next().getSerializedSize();
+            }
+        }
+        return received / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+    }
+
+    private static double longGreet(GreetServiceGrpc.GreetServiceStub stub, final long bytes) throws Exception {
+        final Greeting.GreetRequest request = Greeting.GreetRequest.newBuilder()
+                .setGreeter(Greeting.Greeter.newBuilder().setFirstName("John").setLastName(Strings.repeat("x", payloadSize)))
+                .build();
+        final SettableFuture<Greeting.GreetResponse> done = SettableFuture.create();
+        long start = System.nanoTime();
+        stub.longGreet(new ClientResponseObserver<Greeting.GreetRequest, Greeting.GreetResponse>() {
+            private long sent;
+
+            @Override
+            public void beforeStart(final ClientCallStreamObserver<Greeting.GreetRequest> requestStream) {
+                // Only queue what the transport can take, so that the window and not a local buffer paces the stream
+                requestStream.setOnReadyHandler(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (requestStream.isReady() && sent < bytes) {
+                            requestStream.onNext(request);
+                            sent += request.getSerializedSize();
+                            if (sent >= bytes) {
+                                requestStream.onCompleted();
+                            }
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(Greeting.GreetResponse response) {
+                done.set(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.setException(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        done.get();
+        long sentBytes = (bytes + request.getSerializedSize() - 1) / request.getSerializedSize() * request.getSerializedSize();
+        return sentBytes / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+    }
+
+    private static void run(FlowControl flowControl, int rttMillis, ThreadPoolExecutor executor) throws Exception {
+        Server server = flowControl.configure(NettyServerBuilder.forPort(0))
+                .executor(executor)
+                .addService(ServerInterceptors.intercept(
+                        new ServerApplication.GreetServiceImpl(false, executor),
+                        new ServerApplication.MyAuthInterceptor()))
+                .build()
+                .start();
+        DelayProxy proxy = new DelayProxy(server.getPort(), rttMillis / 2);
+        ManagedChannel channel = flowControl.configure(NettyChannelBuilder.forAddress("localhost", proxy.port))
+                .usePlaintext()
+                .build();
+        try {
+            GreetServiceGrpc.GreetServiceBlockingStub blockingStub
+                    = MetadataUtils.attachHeaders(GreetServiceGrpc.newBlockingStub(channel), headers);
+            GreetServiceGrpc.GreetServiceStub asyncStub
+                    = MetadataUtils.attachHeaders(GreetServiceGrpc.newStub(channel), headers);
+
+            // Warm up, this also lets auto-tuning find the window before measuring
+            greetManyTimes(blockingStub, bytesPerRun / 4);
+            longGreet(asyncStub, bytesPerRun / 4);
+
+            double download = greetManyTimes(blockingStub, bytesPerRun);
+            double upload = longGreet(asyncStub, bytesPerRun);
+            logger.info(String.format("%-18s rtt %4d ms  GreetManyTimes %8.1f MiB/s  LongGreet %8.1f MiB/s"
+                            + "  window client %9d server %9d",
+                    flowControl, rttMillis, download, upload,
+                    flowControl.clientWindow(), flowControl.serverWindow()));
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            proxy.close();
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<Integer> parseList(String value) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (String item : value.split(",")) {
+            values.add(Integer.parseInt(item.trim()));
+        }
+        return values;
+    }
+
+    private static void parseCommandLine(String[] args) {
+        Options options = new Options();
+
+        Option option = new Option(null, "windows", true,
+                "comma separated fixed receive windows in bytes, measured along with one run of BDP auto-tuning"
+                        + " from the default window");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "rtts", true, "comma separated simulated round trip times in milliseconds");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "payload", true, "bytes per streamed message");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "megabytes", true, "MiB moved per measurement and direction");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLine cmd;
+
+        try {
+            cmd = parser.parse(options, args);
+
+            windows = parseList(cmd.getOptionValue("windows", "65535,1048576,8388608"));
+            rtts = parseList(cmd.getOptionValue("rtts", "0,10,50"));
+            payloadSize = Integer.parseInt(cmd.getOptionValue("payload", "65536"));
+            bytesPerRun = Long.parseLong(cmd.getOptionValue("megabytes", "8")) * 1024 * 1024;
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("utility-name", options);
+
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        parseCommandLine(args);
+        // Per call logging in the service would dominate the measurement
+        serverLogger.setLevel(Level.WARNING);
+
+        List<FlowControl> flowControls = new ArrayList<FlowControl>();
+        for (int window : windows) {
+            flowControls.add(new FlowControl(window, 0, false));
+        }
+        flowControls.add(new FlowControl(0, 0, true));
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-app-%d").build());
+        try {
+            for (int rtt : rtts) {
+                for (FlowControl flowControl : flowControls) {
+                    run(flowControl, rtt, executor);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
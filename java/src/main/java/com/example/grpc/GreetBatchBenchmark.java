@@ -0,0 +1,193 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.*;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import org.apache.commons.cli.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares {@code GreetBatch} against the same number of unary {@code Greet} calls.
+ * <p>
+ * Client and server share the JVM and talk plaintext over loopback, so the process CPU time covers
+ * both ends. The figure of merit is greetings per CPU second, i.e. throughput per core.
+ */
+public class GreetBatchBenchmark {
+    private static final Logger logger = Logger.getLogger(GreetBatchBenchmark.class.getName());
+    private static final Logger serverLogger = Logger.getLogger(ServerApplication.class.getName());
+
+    private static int greetings;
+    private static int batchSize;
+    private static int concurrency;
+
+    private final GreetServiceGrpc.GreetServiceFutureStub stub;
+    private final Greeting.Greeter greeter = Greeting.Greeter.newBuilder()
+            .setFirstName("John")
+            .setLastName("Doe")
+            .build();
+
+    private GreetBatchBenchmark(Channel channel) {
+        Metadata headers = new Metadata();
+        headers.put(Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER), "valid-token");
+        stub = MetadataUtils.attachHeaders(GreetServiceGrpc.newFutureStub(channel), headers);
+    }
+
+    private void runUnary(int count) throws InterruptedException {
+        final Greeting.GreetRequest request = Greeting.GreetRequest.newBuilder().setGreeter(greeter).build();
+        run(count, new Call() {
+            @Override
+            public ListenableFuture<?> start() {
+                return stub.greet(request);
+            }
+        });
+    }
+
+    private void runBatch(int count, int size) throws InterruptedException {
+        Greeting.GreetBatchRequest.Builder builder = Greeting.GreetBatchRequest.newBuilder();
+        for (int i = 0; i < size; i++) {
+            builder.addGreeters(greeter);
+        }
+        final Greeting.GreetBatchRequest request = builder.build();
+        run((count + size - 1) / size, new Call() {
+            @Override
+            public ListenableFuture<?> start() {
+                return stub.greetBatch(request);
+            }
+        });
+    }
+
+    private interface Call {
+        ListenableFuture<?> start();
+    }
+
+    /**
+     * Issues {@code calls} calls keeping at most {@code concurrency} of them outstanding.
+     */
+    private void run(int calls, Call call) throws InterruptedException {
+        final Semaphore outstanding = new Semaphore(concurrency);
+        final CountDownLatch done = new CountDownLatch(calls);
+        for (int i = 0; i < calls; i++) {
+            outstanding.acquire();
+            Futures.addCallback(call.start(), new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    outstanding.release();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    logger.log(Level.WARNING, "Call failed", t);
+                    outstanding.release();
+                    done.countDown();
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        done.await();
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    private static void report(String name, long wallNanos, long cpuNanos) {
+        logger.info(String.format("%-24s %10.0f greetings/s %12.0f greetings/cpu-s %8.1f%% cpu",
+                name,
+                greetings / (wallNanos / 1e9),
+                greetings / (cpuNanos / 1e9),
+                100.0 * cpuNanos / wallNanos));
+    }
+
+    private static void parseCommandLine(String[] args) {
+        Options options = new Options();
+
+        Option option = new Option(null, "greetings", true, "greetings per run");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "batch-size", true, "greeters per GreetBatch call");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "concurrency", true, "outstanding calls");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLine cmd;
+
+        try {
+            cmd = parser.parse(options, args);
+
+            greetings = Integer.parseInt(cmd.getOptionValue("greetings", "200000"));
+            batchSize = Integer.parseInt(cmd.getOptionValue("batch-size", "100"));
+            concurrency = Integer.parseInt(cmd.getOptionValue("concurrency", "64"));
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("utility-name", options);
+
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        parseCommandLine(args);
+        // Per call logging in the service would dominate the measurement
+        serverLogger.setLevel(Level.WARNING);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-app-%d").build());
+        Server server = NettyServerBuilder.forPort(0)
+                .executor(executor)
+                .addService(ServerInterceptors.intercept(
+                        new ServerApplication.GreetServiceImpl(false, executor),
+                        new ServerApplication.MyAuthInterceptor()))
+                .build()
+                .start();
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                .usePlaintext()
+                .build();
+
+        try {
+            GreetBatchBenchmark benchmark = new GreetBatchBenchmark(channel);
+
+            // Warm up both paths before measuring
+            benchmark.runUnary(greetings / 4);
+            benchmark.runBatch(greetings / 4, batchSize);
+
+            long wall = System.nanoTime();
+            long cpu = processCpuNanos();
+            benchmark.runUnary(greetings);
+            report("unary Greet", System.nanoTime() - wall, processCpuNanos() - cpu);
+
+            wall = System.nanoTime();
+            cpu = processCpuNanos();
+            benchmark.runBatch(greetings, batchSize);
+            report("GreetBatch x" + batchSize, System.nanoTime() - wall, processCpuNanos() - cpu);
+        } finally {
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+    }
+}
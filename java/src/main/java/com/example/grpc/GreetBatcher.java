@@ -0,0 +1,137 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent unary greetings into {@code GreetBatch} calls.
+ * <p>
+ * A batch is sent once it holds {@code maxBatchSize} greeters or once its oldest greeter has waited
+ * {@code maxDelay}, whichever comes first. Results are demultiplexed back by position.
+ */
+class GreetBatcher {
+    private final GreetServiceGrpc.GreetServiceFutureStub stub;
+    private final ScheduledExecutorService scheduler;
+    private final long maxDelayNanos;
+    private final int maxBatchSize;
+
+    private List<Pending> pending = new ArrayList<Pending>();
+    private ScheduledFuture<?> flushTimer;
+
+    GreetBatcher(GreetServiceGrpc.GreetServiceFutureStub stub,
+                 ScheduledExecutorService scheduler,
+                 long maxDelay,
+                 TimeUnit unit,
+                 int maxBatchSize) {
+        this.stub = stub;
+        this.scheduler = scheduler;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.maxBatchSize = maxBatchSize;
+
+        Metrics.gauge("client.greet.batcher.average_batch_size", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return Metrics.ratio("client.greet.batcher.greetings", "client.greet.batcher.batches");
+            }
+        });
+    }
+
+    ListenableFuture<Greeting.GreetResponse> greet(Greeting.Greeter greeter) {
+        SettableFuture<Greeting.GreetResponse> response = SettableFuture.create();
+        List<Pending> full = null;
+        synchronized (this) {
+            pending.add(new Pending(greeter, response));
+            if (pending.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (pending.size() == 1) {
+                final List<Pending> batch = pending;
+                flushTimer = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(batch);
+                    }
+                }, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return response;
+    }
+
+    /**
+     * Sends {@code batch} if it is still the one being filled, it may have been sent for being full.
+     */
+    private void flush(List<Pending> batch) {
+        synchronized (this) {
+            if (batch != pending) {
+                return;
+            }
+            takeBatch();
+        }
+        send(batch);
+    }
+
+    private List<Pending> takeBatch() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<Pending>();
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        return batch;
+    }
+
+    private void send(final List<Pending> batch) {
+        Metrics.counter("client.greet.batcher.batches").incrementAndGet();
+        Metrics.counter("client.greet.batcher.greetings").addAndGet(batch.size());
+
+        Greeting.GreetBatchRequest.Builder request = Greeting.GreetBatchRequest.newBuilder();
+        for (Pending item : batch) {
+            request.addGreeters(item.greeter);
+        }
+        Futures.addCallback(stub.greetBatch(request.build()), new FutureCallback<Greeting.GreetBatchResponse>() {
+            @Override
+            public void onSuccess(Greeting.GreetBatchResponse response) {
+                if (response.getResultsCount() != batch.size()) {
+                    onFailure(Status.INTERNAL
+                            .withDescription("Expected " + batch.size() + " results, got " + response.getResultsCount())
+                            .asRuntimeException());
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).response.set(response.getResults(i));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                for (Pending item : batch) {
+                    item.response.setException(t);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static class Pending {
+        final Greeting.Greeter greeter;
+        final SettableFuture<Greeting.GreetResponse> response;
+
+        Pending(Greeting.Greeter greeter, SettableFuture<Greeting.GreetResponse> response) {
+            this.greeter = greeter;
+            this.response = response;
+        }
+    }
+}
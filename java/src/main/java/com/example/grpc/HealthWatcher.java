@@ -0,0 +1,83 @@
+package com.example.grpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the health of a backend through a {@code grpc.health.v1.Health/Watch} stream.
+ * <p>
+ * The server pushes every status change, so a backend that reports NOT_SERVING, see {@link LoadAwareHealth},
+ * is avoided from its next message on rather than after calls to it started timing out. A backend counts as
+ * serving until it said otherwise, and for good when it does not implement the health service. A broken
+ * stream keeps the last status and is watched again after {@link #RETRY_DELAY_MILLIS}.
+ */
+class HealthWatcher {
+    private static final Logger logger = Logger.getLogger(HealthWatcher.class.getName());
+
+    static final long RETRY_DELAY_MILLIS = 1000;
+
+    private static final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-health-watch-%d").build());
+
+    private final ManagedChannel channel;
+    private volatile boolean serving = true;
+
+    HealthWatcher(ManagedChannel channel) {
+        this.channel = channel;
+        watch();
+    }
+
+    boolean isServing() {
+        return serving;
+    }
+
+    private void watch() {
+        // Open for as long as the connection, which it does not keep in use
+        HealthGrpc.newStub(channel).withOption(ConnectionWatcher.BACKGROUND_CALL, true)
+                .watch(HealthCheckRequest.getDefaultInstance(),
+                new StreamObserver<HealthCheckResponse>() {
+                    @Override
+                    public void onNext(HealthCheckResponse response) {
+                        boolean nowServing = response.getStatus() == HealthCheckResponse.ServingStatus.SERVING;
+                        if (serving && !nowServing) {
+                            Metrics.counter("client.health.not_serving").incrementAndGet();
+                        }
+                        serving = nowServing;
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        if (Status.fromThrowable(t).getCode() == Status.Code.UNIMPLEMENTED) {
+                            serving = true;
+                            return;
+                        }
+                        if (channel.isShutdown()) {
+                            return;
+                        }
+                        logger.log(Level.FINE, "Health watch of " + channel.authority() + " ended", t);
+                        retries.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                watch();
+                            }
+                        }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        onError(Status.UNAVAILABLE.withDescription("Watch completed").asRuntimeException());
+                    }
+                });
+    }
+}
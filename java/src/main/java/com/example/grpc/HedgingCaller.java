@@ -0,0 +1,230 @@
+package com.example.grpc;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.*;
+import io.grpc.stub.ClientCalls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries and hedges an idempotent unary method.
+ * <p>
+ * A hedge is a second attempt started when the first one has not answered after the configured
+ * percentile of recent latencies; the first response wins and the other attempt is cancelled. When
+ * the channel is a {@link LoadBalancedChannel} every attempt goes to a backend not used by an
+ * earlier attempt. Both retries and hedges draw from a shared {@link RetryBudget}.
+ */
+class HedgingCaller<ReqT, RespT> {
+    private static final Set<Status.Code> RETRYABLE_CODES = EnumSet.of(
+            Status.Code.UNAVAILABLE, Status.Code.RESOURCE_EXHAUSTED, Status.Code.ABORTED);
+
+    private final Channel channel;
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final CallOptions callOptions;
+    private final ScheduledExecutorService scheduler;
+    private final RetryBudget budget;
+    private final LatencyTracker latencies = new LatencyTracker(1024);
+    private final int maxAttempts;
+    private final boolean hedging;
+    private final double hedgingPercentile;
+    private final long minHedgingDelayNanos;
+    private final String metricPrefix;
+
+    /**
+     * @param maxAttempts        total attempts per call including the original one
+     * @param hedging            start a concurrent attempt after the latency percentile instead of waiting
+     *                           for a failure
+     * @param hedgingPercentile  percentile of recent latencies after which a hedge is sent
+     * @param minHedgingDelayMs  lower bound of the hedging delay, also used until enough samples exist
+     */
+    HedgingCaller(Channel channel,
+                  MethodDescriptor<ReqT, RespT> method,
+                  CallOptions callOptions,
+                  ScheduledExecutorService scheduler,
+                  RetryBudget budget,
+                  int maxAttempts,
+                  boolean hedging,
+                  double hedgingPercentile,
+                  long minHedgingDelayMs) {
+        this.channel = channel;
+        this.method = method;
+        this.callOptions = callOptions;
+        this.scheduler = scheduler;
+        this.budget = budget;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.hedging = hedging;
+        this.hedgingPercentile = hedgingPercentile;
+        this.minHedgingDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgingDelayMs);
+        this.metricPrefix = "client." + method.getFullMethodName() + ".";
+
+        Metrics.gauge(metricPrefix + "hedge_win_rate", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return Metrics.ratio(metricPrefix + "hedge_wins", metricPrefix + "hedges");
+            }
+        });
+    }
+
+    ListenableFuture<RespT> call(ReqT request) {
+        Metrics.counter(metricPrefix + "calls").incrementAndGet();
+        budget.deposit();
+        Call call = new Call(request);
+        call.startAttempt(Attempt.ORIGINAL);
+        return call.result;
+    }
+
+    private long hedgingDelayNanos() {
+        return Math.max(minHedgingDelayNanos, latencies.percentile(hedgingPercentile));
+    }
+
+    private static long backoffNanos(int attempt) {
+        long ceiling = TimeUnit.MILLISECONDS.toNanos(Math.min(1000, 50L << Math.min(attempt, 5)));
+        return (long) (ThreadLocalRandom.current().nextDouble() * ceiling);
+    }
+
+    private enum Attempt {
+        ORIGINAL, RETRY, HEDGE
+    }
+
+    /**
+     * State of one logical call across all of its attempts.
+     */
+    private class Call {
+        final ReqT request;
+        final SettableFuture<RespT> result = SettableFuture.create();
+        final Set<LoadBalancedChannel.Endpoint> tried
+                = Collections.newSetFromMap(new ConcurrentHashMap<LoadBalancedChannel.Endpoint, Boolean>());
+        final List<ListenableFuture<RespT>> attempts = new ArrayList<ListenableFuture<RespT>>();
+        int pending;
+        Status lastFailure;
+
+        Call(ReqT request) {
+            this.request = request;
+        }
+
+        /**
+         * Starts an attempt unless the call is complete or out of attempts, retries and hedges also need
+         * a token from the budget. Counted as a retry or hedge only when it starts.
+         */
+        void startAttempt(final Attempt kind) {
+            final int attempt;
+            final ListenableFuture<RespT> future;
+            synchronized (this) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (attempts.size() >= maxAttempts) {
+                    // A hedge and a retry raced for the last attempt
+                    if (pending == 0) {
+                        result.setException(lastFailure.asRuntimeException());
+                    }
+                    return;
+                }
+                if (kind != Attempt.ORIGINAL && !budget.tryWithdraw()) {
+                    Metrics.counter(metricPrefix + "budget_exhausted").incrementAndGet();
+                    if (kind == Attempt.RETRY && pending == 0) {
+                        result.setException(lastFailure.asRuntimeException());
+                    }
+                    return;
+                }
+                if (kind == Attempt.RETRY) {
+                    Metrics.counter(metricPrefix + "retries").incrementAndGet();
+                } else if (kind == Attempt.HEDGE) {
+                    Metrics.counter(metricPrefix + "hedges").incrementAndGet();
+                }
+                attempt = attempts.size();
+                pending++;
+                final long start = System.nanoTime();
+                future = ClientCalls.futureUnaryCall(
+                        channel.newCall(method, callOptions.withOption(LoadBalancedChannel.TRIED_ENDPOINTS, tried)),
+                        request);
+                attempts.add(future);
+                Futures.addCallback(future, new FutureCallback<RespT>() {
+                    @Override
+                    public void onSuccess(RespT response) {
+                        latencies.record(System.nanoTime() - start);
+                        onAttemptSucceeded(kind, response);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        onAttemptFailed(Status.fromThrowable(t));
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+
+            if (hedging && attempt + 1 < maxAttempts) {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        startAttempt(Attempt.HEDGE);
+                    }
+                }, hedgingDelayNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void onAttemptSucceeded(Attempt kind, RespT response) {
+            List<ListenableFuture<RespT>> losers;
+            synchronized (this) {
+                pending--;
+                if (!result.set(response)) {
+                    return;
+                }
+                losers = new ArrayList<ListenableFuture<RespT>>(attempts);
+            }
+            if (kind == Attempt.HEDGE) {
+                Metrics.counter(metricPrefix + "hedge_wins").incrementAndGet();
+            } else if (kind == Attempt.RETRY) {
+                Metrics.counter(metricPrefix + "retry_successes").incrementAndGet();
+            }
+            for (ListenableFuture<RespT> loser : losers) {
+                loser.cancel(true);
+            }
+        }
+
+        void onAttemptFailed(Status status) {
+            boolean retry;
+            int attempted;
+            synchronized (this) {
+                pending--;
+                lastFailure = status;
+                if (result.isDone()) {
+                    return;
+                }
+                attempted = attempts.size();
+                retry = RETRYABLE_CODES.contains(status.getCode()) && attempted < maxAttempts;
+                if (!retry && pending > 0) {
+                    // A concurrent hedge may still succeed
+                    return;
+                }
+            }
+            if (retry) {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        startAttempt(Attempt.RETRY);
+                    }
+                }, backoffNanos(attempted), TimeUnit.NANOSECONDS);
+                return;
+            }
+            synchronized (this) {
+                if (pending > 0) {
+                    return;
+                }
+                result.setException(lastFailure.asRuntimeException());
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.grpc;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent latencies, used to derive the hedging delay.
+ * <p>
+ * Percentiles are recomputed from a sorted copy once every {@code window / 16} samples rather than
+ * on every lookup.
+ */
+class LatencyTracker {
+    private final long[] samples;
+    private final int refreshInterval;
+    private int next;
+    private int count;
+    private int sinceRefresh;
+    private long[] sorted = new long[0];
+
+    LatencyTracker(int window) {
+        this.samples = new long[window];
+        this.refreshInterval = Math.max(1, window / 16);
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sinceRefresh++;
+    }
+
+    /**
+     * @return the latency at {@code percentile} in nanoseconds, or -1 if nothing has been recorded
+     */
+    synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        if (sinceRefresh >= refreshInterval || sorted.length == 0) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sinceRefresh = 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import io.grpc.*;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.services.HealthStatusManager;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Serves {@code grpc.health.v1.Health} with a status that follows the load of the server.
+ * <p>
+ * Every {@link #check()} compares the calls in flight, the depth of the application executor queue and the
+ * event loop lag with their limits. The server turns NOT_SERVING as soon as one of them is exceeded and
+ * SERVING again once all of them are back below {@link #RECOVERY_RATIO} of their limit, so that it does not
+ * flap around a limit. Clients watching the status, see {@link HealthWatcher}, learn about the change with
+ * the next message on their {@code Watch} stream.
+ * <p>
+ * The status applies to the server as a whole ({@code ""}) and to the greeting service alike. A server
+ * that warms up first, see {@link WarmUp}, is NOT_SERVING until {@link #warmedUp()}.
+ */
+class LoadAwareHealth {
+    private static final Logger logger = Logger.getLogger(LoadAwareHealth.class.getName());
+
+    /**
+     * Fraction of each limit that all signals must be under for the server to return to SERVING.
+     */
+    static final double RECOVERY_RATIO = 0.8;
+
+    private final HealthStatusManager healthStatusManager = new HealthStatusManager();
+    private final Set<SerializedCall<?, ?>> watches
+            = Collections.newSetFromMap(new ConcurrentHashMap<SerializedCall<?, ?>, Boolean>());
+    private final LoadReportingInterceptor load;
+    private final EventLoopLagProbe lagProbe;
+    private final int maxInFlight;
+    private final int maxQueueDepth;
+    private final long maxLagMillis;
+    private volatile boolean serving;
+    private volatile boolean warmingUp;
+    private volatile boolean terminal;
+
+    /**
+     * @param load          source of the in-flight count and the executor queue depth
+     * @param lagProbe      probe of the event loops serving the connections, probed by the caller of
+     *                      {@link #check()}
+     * @param maxInFlight   calls in flight above which the server is NOT_SERVING, 0 to ignore them
+     * @param maxQueueDepth queued executor tasks above which the server is NOT_SERVING, 0 to ignore them
+     * @param maxLagMillis  event loop lag above which the server is NOT_SERVING, 0 to ignore it
+     * @param warmingUp     start NOT_SERVING and ignore the load until {@link #warmedUp()}
+     */
+    LoadAwareHealth(LoadReportingInterceptor load, EventLoopLagProbe lagProbe,
+                    int maxInFlight, int maxQueueDepth, long maxLagMillis, boolean warmingUp) {
+        this.load = load;
+        this.lagProbe = lagProbe;
+        this.maxInFlight = maxInFlight;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxLagMillis = maxLagMillis;
+        this.warmingUp = warmingUp;
+        this.serving = !warmingUp;
+        setStatus(serving ? ServingStatus.SERVING : ServingStatus.NOT_SERVING);
+        Metrics.gauge("server.health.serving", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return serving ? 1 : 0;
+            }
+        });
+        Metrics.gauge("server.event_loop.lag_millis", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return TimeUnit.NANOSECONDS.toMillis(LoadAwareHealth.this.lagProbe.maxLagNanos());
+            }
+        });
+    }
+
+    /**
+     * @return the health service, to be added without authentication since load balancers call it
+     */
+    ServerServiceDefinition getHealthService() {
+        return ServerInterceptors.intercept(healthStatusManager.getHealthService(), new WatchTracker());
+    }
+
+    /**
+     * A {@code Watch} call whose methods may be used from any thread: the health service sends status updates
+     * from the thread setting the status, and {@link #enterTerminalState()} closes the call from the draining
+     * one, while gRPC expects the methods of a call to be used one at a time.
+     */
+    private static final class SerializedCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private boolean closed;
+
+        SerializedCall(ServerCall<ReqT, RespT> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public synchronized void request(int numMessages) {
+            super.request(numMessages);
+        }
+
+        @Override
+        public synchronized void sendHeaders(Metadata headers) {
+            super.sendHeaders(headers);
+        }
+
+        @Override
+        public synchronized void sendMessage(RespT message) {
+            super.sendMessage(message);
+        }
+
+        @Override
+        public synchronized void setMessageCompression(boolean enabled) {
+            super.setMessageCompression(enabled);
+        }
+
+        @Override
+        public synchronized void setCompression(String compressor) {
+            super.setCompression(compressor);
+        }
+
+        @Override
+        public synchronized void close(Status status, Metadata trailers) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            super.close(status, trailers);
+        }
+    }
+
+    /**
+     * Keeps the open {@code Watch} streams, which would otherwise hold up a graceful shutdown forever.
+     */
+    private final class WatchTracker implements ServerInterceptor {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> serverCall,
+                Metadata headers,
+                ServerCallHandler<ReqT, RespT> next) {
+            if (serverCall.getMethodDescriptor().getType() != MethodDescriptor.MethodType.SERVER_STREAMING) {
+                return next.startCall(serverCall, headers);
+            }
+            final SerializedCall<ReqT, RespT> call = new SerializedCall<ReqT, RespT>(serverCall);
+            watches.add(call);
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
+                    next.startCall(call, headers)) {
+                @Override
+                public void onComplete() {
+                    watches.remove(call);
+                    super.onComplete();
+                }
+
+                @Override
+                public void onCancel() {
+                    watches.remove(call);
+                    super.onCancel();
+                }
+            };
+        }
+    }
+
+    /**
+     * Updates the status, meant to be called periodically right after {@link EventLoopLagProbe#probe()}. The
+     * lag of a probe is only known once the loop ran it, so a loop's lag shows up one check late unless it
+     * is blocked.
+     */
+    void check() {
+        if (terminal || warmingUp) {
+            return;
+        }
+        int inFlight = load.getInFlight();
+        int queueDepth = load.getQueueDepth();
+        long lagMillis = TimeUnit.NANOSECONDS.toMillis(lagProbe.maxLagNanos());
+        if (serving && (exceeds(inFlight, maxInFlight, 1) || exceeds(queueDepth, maxQueueDepth, 1)
+                || exceeds(lagMillis, maxLagMillis, 1))) {
+            logger.warning("Reporting NOT_SERVING with " + inFlight + " call(s) in flight, " + queueDepth
+                    + " queued task(s) and an event loop lag of " + lagMillis + " ms");
+            Metrics.counter("server.health.not_serving_transitions").incrementAndGet();
+            serving = false;
+            setStatus(ServingStatus.NOT_SERVING);
+        } else if (!serving && !exceeds(inFlight, maxInFlight, RECOVERY_RATIO)
+                && !exceeds(queueDepth, maxQueueDepth, RECOVERY_RATIO)
+                && !exceeds(lagMillis, maxLagMillis, RECOVERY_RATIO)) {
+            logger.info("Reporting SERVING again");
+            serving = true;
+            setStatus(ServingStatus.SERVING);
+        }
+    }
+
+    /**
+     * Ends the warm-up, the server reports SERVING from now on unless it is loaded already.
+     */
+    void warmedUp() {
+        if (terminal || !warmingUp) {
+            return;
+        }
+        logger.info("Reporting SERVING after the warm-up");
+        serving = true;
+        setStatus(ServingStatus.SERVING);
+        warmingUp = false;
+    }
+
+    private static boolean exceeds(long value, long limit, double ratio) {
+        return limit > 0 && value > limit * ratio;
+    }
+
+    private void setStatus(ServingStatus status) {
+        healthStatusManager.setStatus(HealthStatusManager.SERVICE_NAME_ALL_SERVICES, status);
+        healthStatusManager.setStatus(GreetServiceGrpc.SERVICE_NAME, status);
+    }
+
+    /**
+     * Reports NOT_SERVING for good and ends the open {@code Watch} streams, which the watchers receive
+     * right after the final status. Called when the server starts draining.
+     */
+    void enterTerminalState() {
+        terminal = true;
+        serving = false;
+        healthStatusManager.enterTerminalState();
+        for (SerializedCall<?, ?> call : watches) {
+            call.close(Status.UNAVAILABLE.withDescription("Server is shutting down"), new Metadata());
+        }
+        watches.clear();
+    }
+}
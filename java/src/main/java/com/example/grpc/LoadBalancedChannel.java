@@ -0,0 +1,240 @@
+package com.example.grpc;
+
+import io.grpc.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A channel over several backends that weights each call by the load the backends report.
+ * <p>
+ * Every backend gets its own {@link ManagedChannel}. The weight of a backend is derived from the
+ * calls this client still has outstanding on it plus the last report piggybacked on trailers by
+ * {@link LoadReportingInterceptor}, so a slow node that accumulates in-flight calls or queue depth
+ * gets proportionally less traffic than a plain round-robin would send it.
+ * <p>
+ * Backends whose connection is not ready, typically because they sent GOAWAY and are being reconnected,
+ * or that report NOT_SERVING on their health stream are skipped while any other backend is available, so
+ * their share moves to the others in the meantime.
+ */
+class LoadBalancedChannel extends ManagedChannel {
+    private static final Logger logger = Logger.getLogger(LoadBalancedChannel.class.getName());
+
+    /**
+     * Endpoints already used by earlier attempts of the same logical call. Calls carrying this option
+     * prefer an endpoint outside of the set and add the one they picked to it, so that retries and
+     * hedges land on another backend.
+     */
+    static final CallOptions.Key<Set<Endpoint>> TRIED_ENDPOINTS = CallOptions.Key.create("triedEndpoints");
+
+    private final List<Endpoint> endpoints;
+
+    /**
+     * @param connectionWatchers the watchers of the backend channels, one per backend
+     */
+    LoadBalancedChannel(List<ConnectionWatcher> connectionWatchers) {
+        if (connectionWatchers.isEmpty()) {
+            throw new IllegalArgumentException("At least one backend is required");
+        }
+        List<Endpoint> endpoints = new ArrayList<Endpoint>(connectionWatchers.size());
+        for (ConnectionWatcher connectionWatcher : connectionWatchers) {
+            endpoints.add(new Endpoint(connectionWatcher));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+    }
+
+    List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Picks a backend at random, with a probability proportional to its weight. Backends in
+     * {@code excluded} are skipped unless every backend has been excluded, backends that are not
+     * connected or not serving unless none is available.
+     */
+    Endpoint pick(Set<Endpoint> excluded) {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+        if (excluded != null && excluded.containsAll(endpoints)) {
+            excluded = null;
+        }
+        boolean anyAvailable = false;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable() && (excluded == null || !excluded.contains(endpoint))) {
+                anyAvailable = true;
+                break;
+            }
+        }
+        double total = 0;
+        double[] weights = new double[endpoints.size()];
+        for (int i = 0; i < weights.length; i++) {
+            Endpoint endpoint = endpoints.get(i);
+            weights[i] = (excluded != null && excluded.contains(endpoint)) || (anyAvailable && !endpoint.isAvailable())
+                    ? 0 : endpoint.weight();
+            total += weights[i];
+        }
+        double r = ThreadLocalRandom.current().nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (weights[i] > 0 && r < 0) {
+                return endpoints.get(i);
+            }
+        }
+        for (int i = weights.length - 1; i >= 0; i--) {
+            if (weights[i] > 0) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> methodDescriptor,
+                                                         CallOptions callOptions) {
+        Set<Endpoint> tried = callOptions.getOption(TRIED_ENDPOINTS);
+        Endpoint endpoint = pick(tried);
+        if (tried != null) {
+            tried.add(endpoint);
+        }
+        return endpoint.newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return endpoints.get(0).channel.authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        for (Endpoint endpoint : endpoints) {
+            endpoint.channel.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.channel.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.channel.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        for (Endpoint endpoint : endpoints) {
+            endpoint.channel.shutdownNow();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Endpoint endpoint : endpoints) {
+            long remaining = deadline - System.nanoTime();
+            if (!endpoint.channel.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A single backend along with the last load it reported.
+     */
+    static class Endpoint {
+        final ManagedChannel channel;
+
+        private final ConnectionWatcher connectionWatcher;
+        private final HealthWatcher healthWatcher;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile int reportedInFlight;
+        private volatile int reportedQueueDepth;
+        private volatile double reportedCpuUtilization;
+
+        Endpoint(ConnectionWatcher connectionWatcher) {
+            this.channel = connectionWatcher.getChannel();
+            this.connectionWatcher = connectionWatcher;
+            this.healthWatcher = new HealthWatcher(channel);
+        }
+
+        /**
+         * @return whether the backend is connected and reports SERVING
+         */
+        boolean isAvailable() {
+            return connectionWatcher.isReady() && healthWatcher.isServing();
+        }
+
+        double weight() {
+            int pending = outstanding.get() + reportedInFlight + reportedQueueDepth;
+            // Keep a small floor so a saturated backend still gets probed and can report recovery
+            double idle = Math.max(0.05, 1.0 - reportedCpuUtilization);
+            return idle / (1 + pending);
+        }
+
+        <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> methodDescriptor,
+                                                      CallOptions callOptions) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+                    channel.newCall(methodDescriptor, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    outstanding.incrementAndGet();
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            outstanding.decrementAndGet();
+                            updateLoad(trailers);
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                }
+            };
+        }
+
+        private void updateLoad(Metadata trailers) {
+            String inFlight = trailers.get(LoadReportingInterceptor.IN_FLIGHT_KEY);
+            if (inFlight == null) {
+                return;
+            }
+            try {
+                // The reporting call itself is still counted as in flight by the server
+                reportedInFlight = Math.max(0, Integer.parseInt(inFlight) - 1);
+                String queueDepth = trailers.get(LoadReportingInterceptor.QUEUE_DEPTH_KEY);
+                reportedQueueDepth = queueDepth == null ? 0 : Integer.parseInt(queueDepth);
+                String cpu = trailers.get(LoadReportingInterceptor.CPU_UTILIZATION_KEY);
+                reportedCpuUtilization = cpu == null ? 0 : Double.parseDouble(cpu);
+            } catch (NumberFormatException e) {
+                logger.log(Level.FINE, "Ignoring malformed load report from " + channel.authority(), e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return channel.authority() + "{outstanding=" + outstanding.get()
+                    + ", inFlight=" + reportedInFlight
+                    + ", queueDepth=" + reportedQueueDepth
+                    + ", cpu=" + reportedCpuUtilization + "}";
+        }
+    }
+}
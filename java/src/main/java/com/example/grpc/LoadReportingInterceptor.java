@@ -0,0 +1,119 @@
+package com.example.grpc;
+
+import io.grpc.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks in-flight calls and piggybacks a load report on the trailers of every Nth call.
+ * <p>
+ * The report is three ASCII trailers: in-flight calls, process CPU utilization (0.0 - 1.0) and the
+ * depth of the application executor queue. Clients use them to weight endpoints, see
+ * {@link LoadBalancedChannel}.
+ * <p>
+ * {@link WarmUp} calls are not counted, each of them carries a report instead.
+ */
+class LoadReportingInterceptor implements ServerInterceptor {
+    static final Metadata.Key<String> IN_FLIGHT_KEY
+            = Metadata.Key.of("x-load-in-flight", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> CPU_UTILIZATION_KEY
+            = Metadata.Key.of("x-load-cpu-utilization", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> QUEUE_DEPTH_KEY
+            = Metadata.Key.of("x-load-queue-depth", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final int reportInterval;
+    private final ThreadPoolExecutor executor;
+    private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+    /**
+     * @param reportInterval attach a report every {@code reportInterval} calls, 0 disables reporting
+     * @param executor       the application executor whose queue depth is reported, may be null
+     */
+    LoadReportingInterceptor(int reportInterval, ThreadPoolExecutor executor) {
+        this.reportInterval = reportInterval;
+        this.executor = executor;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getStarted() {
+        return started.get();
+    }
+
+    int getQueueDepth() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    double getCpuUtilization() {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuLoad();
+            if (load >= 0) {
+                return load;
+            }
+        }
+        // Fall back to the load average when the process CPU load is not available
+        double loadAverage = osBean.getSystemLoadAverage();
+        return loadAverage < 0 ? 0 : Math.min(1.0, loadAverage / osBean.getAvailableProcessors());
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        final boolean counted = !WarmUp.isSynthetic();
+        if (counted) {
+            inFlight.incrementAndGet();
+            started.incrementAndGet();
+        }
+        ServerCall<ReqT, RespT> reportingCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                if (reportInterval > 0 && (!counted || completed.incrementAndGet() % reportInterval == 0)) {
+                    trailers.put(IN_FLIGHT_KEY, Integer.toString(inFlight.get()));
+                    trailers.put(CPU_UTILIZATION_KEY, String.format(Locale.ROOT, "%.3f", getCpuUtilization()));
+                    trailers.put(QUEUE_DEPTH_KEY, Integer.toString(getQueueDepth()));
+                }
+                super.close(status, trailers);
+            }
+        };
+
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(reportingCall, headers);
+        } catch (RuntimeException e) {
+            if (counted) {
+                inFlight.decrementAndGet();
+            }
+            throw e;
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onComplete() {
+                if (counted) {
+                    inFlight.decrementAndGet();
+                }
+                super.onComplete();
+            }
+
+            @Override
+            public void onCancel() {
+                if (counted) {
+                    inFlight.decrementAndGet();
+                }
+                super.onCancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.grpc;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide registry of named counters, gauges and histograms.
+ * <p>
+ * There is no exporter, {@link #snapshot()} renders everything for the log.
+ */
+final class Metrics {
+    private static final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    private static final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+    private Metrics() {
+    }
+
+    interface Gauge {
+        double value();
+    }
+
+    static AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    static void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Counts of recorded values per bucket, each bucket holding the values up to its upper bound and
+     * above the previous one, with a last bucket for everything above the largest bound.
+     */
+    static final class Histogram {
+        private final long[] bounds;
+        private final AtomicLongArray counts;
+
+        private Histogram(long[] bounds) {
+            this.bounds = bounds;
+            this.counts = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void record(long value) {
+            int bucket = Arrays.binarySearch(bounds, value);
+            counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("{");
+            for (int i = 0; i < bounds.length; i++) {
+                builder.append("le_").append(bounds[i]).append(": ").append(counts.get(i)).append(", ");
+            }
+            return builder.append("inf: ").append(counts.get(bounds.length)).append('}').toString();
+        }
+    }
+
+    /**
+     * @param bounds ascending upper bounds of the buckets, only used when the histogram does not exist yet
+     */
+    static Histogram histogram(String name, long... bounds) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(bounds);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return {@code numerator / denominator} or 0 when nothing has been counted yet
+     */
+    static double ratio(String numerator, String denominator) {
+        long total = counter(denominator).get();
+        return total == 0 ? 0 : (double) counter(numerator).get() / total;
+    }
+
+    static String snapshot() {
+        Map<String, Object> values = new TreeMap<String, Object>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            double value = entry.getValue().value();
+            values.put(entry.getKey(), value == Math.rint(value) && !Double.isInfinite(value)
+                    ? (Object) (long) value : (Object) value);
+        }
+        values.putAll(histograms);
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.grpc;
+
+import io.grpc.Attributes;
+import io.grpc.netty.GrpcHttp2ConnectionHandler;
+import io.grpc.netty.InternalProtocolNegotiationEvent;
+import io.grpc.netty.InternalProtocolNegotiator;
+import io.grpc.netty.InternalProtocolNegotiators;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.unix.PeerCredentials;
+import io.netty.util.AsciiString;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plaintext negotiation for Unix domain socket connections that records the peer credentials.
+ * <p>
+ * The kernel reports the uid of the connecting process ({@code SO_PEERCRED}), which cannot be spoofed
+ * by the caller. When it is the accepted uid or root it is stored once per connection under
+ * {@link ServerApplication.PeerIdentityFilter#PEER_IDENTITY}, so calls on the socket are authenticated the
+ * same way as mutual TLS connections. Other peers get no identity and have to present the token.
+ */
+class PeerCredentialsNegotiator implements InternalProtocolNegotiator.ProtocolNegotiator {
+    private static final Logger logger = Logger.getLogger(PeerCredentialsNegotiator.class.getName());
+    private static final AsciiString SCHEME = AsciiString.of("http");
+    private static final int ROOT_UID = 0;
+
+    private final int acceptedUid;
+
+    /**
+     * @param acceptedUid uid whose processes are authenticated, besides root
+     */
+    PeerCredentialsNegotiator(int acceptedUid) {
+        this.acceptedUid = acceptedUid;
+    }
+
+    @Override
+    public AsciiString scheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public ChannelHandler newHandler(GrpcHttp2ConnectionHandler grpcHandler) {
+        return InternalProtocolNegotiators.waitUntilActiveHandler(
+                new PeerCredentialsHandler(InternalProtocolNegotiators.grpcNegotiationHandler(grpcHandler)));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private final class PeerCredentialsHandler extends InternalProtocolNegotiators.ProtocolNegotiationHandler {
+        PeerCredentialsHandler(ChannelHandler next) {
+            super(next);
+        }
+
+        @Override
+        protected void protocolNegotiationEventTriggered(ChannelHandlerContext ctx) {
+            if (ctx.channel() instanceof EpollDomainSocketChannel) {
+                try {
+                    PeerCredentials credentials = ((EpollDomainSocketChannel) ctx.channel()).peerCredentials();
+                    if (credentials.uid() != acceptedUid && credentials.uid() != ROOT_UID) {
+                        Metrics.counter("server.uds.unknown_peers").incrementAndGet();
+                        fireProtocolNegotiationEvent(ctx);
+                        return;
+                    }
+                    Attributes attributes = InternalProtocolNegotiationEvent.getAttributes(getProtocolNegotiationEvent())
+                            .toBuilder()
+                            .set(ServerApplication.PeerIdentityFilter.PEER_IDENTITY, "unix:uid=" + credentials.uid())
+                            .build();
+                    replaceProtocolNegotiationEvent(
+                            InternalProtocolNegotiationEvent.withAttributes(getProtocolNegotiationEvent(), attributes));
+                    Metrics.counter("server.uds.peer_identities").incrementAndGet();
+                } catch (IOException e) {
+                    // Without an identity the connection falls back to token authentication
+                    logger.log(Level.WARNING, "Could not read peer credentials", e);
+                }
+            }
+            fireProtocolNegotiationEvent(ctx);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.io.ByteStreams;
+import io.grpc.MethodDescriptor;
+import org.apache.commons.cli.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares the full and the lite protobuf runtime for the greeting messages.
+ * <p>
+ * Run it once from the default build and once from a {@code -Dprotobuf.lite} build. It reports the cost of
+ * the first message, which includes initializing the generated classes and for the full runtime building
+ * their descriptors, the classes loaded for it, the heap retained per parsed request, and the marshalling
+ * throughput of the method marshallers the stubs use. Startup time and RSS of the whole server come from
+ * {@code startup-report.sh}.
+ */
+public class ProtobufRuntimeBenchmark {
+    private static final Logger logger = Logger.getLogger(ProtobufRuntimeBenchmark.class.getName());
+
+    private static int seconds;
+    private static int batchSize;
+    private static int retained;
+
+    private static <ReqT, RespT> long roundTrip(MethodDescriptor<ReqT, RespT> method, ReqT request)
+            throws IOException {
+        byte[] bytes = ByteStreams.toByteArray(method.streamRequest(request));
+        method.parseRequest(new ByteArrayInputStream(bytes));
+        return bytes.length;
+    }
+
+    /**
+     * @return serialized and parsed messages per second
+     */
+    private static <ReqT, RespT> double throughput(MethodDescriptor<ReqT, RespT> method, ReqT request)
+            throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                roundTrip(method, request);
+            }
+            count += 1000;
+        }
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void parseCommandLine(String[] args) {
+        Options options = new Options();
+
+        Option option = new Option(null, "seconds", true, "seconds per throughput measurement");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "batch-size", true, "greeters in the batch request");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "retained", true, "parsed requests held to measure their heap footprint");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLine cmd;
+
+        try {
+            cmd = parser.parse(options, args);
+
+            seconds = Integer.parseInt(cmd.getOptionValue("seconds", "5"));
+            batchSize = Integer.parseInt(cmd.getOptionValue("batch-size", "100"));
+            retained = Integer.parseInt(cmd.getOptionValue("retained", "100000"));
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("utility-name", options);
+
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        parseCommandLine(args);
+
+        // Nothing may touch the generated classes before this point
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long classesBefore = classLoading.getLoadedClassCount();
+        long start = System.nanoTime();
+        Greeting.GreetRequest request = Greeting.GreetRequest.newBuilder()
+                .setGreeter(Greeting.Greeter.newBuilder().setFirstName("John").setLastName("Doe"))
+                .build();
+        roundTrip(GreetServiceGrpc.getGreetMethod(), request);
+        double firstMessageMillis = (System.nanoTime() - start) / 1e6;
+        long firstMessageClasses = classLoading.getLoadedClassCount() - classesBefore;
+
+        String runtime = com.google.protobuf.GeneratedMessageLite.class.isInstance(request) ? "lite" : "full";
+        logger.info(String.format("%s runtime: first message %.1f ms, %d classes loaded for it",
+                runtime, firstMessageMillis, firstMessageClasses));
+
+        long heapBefore = usedHeapAfterGc();
+        byte[] bytes = ByteStreams.toByteArray(GreetServiceGrpc.getGreetMethod().streamRequest(request));
+        List<Greeting.GreetRequest> parsed = new ArrayList<Greeting.GreetRequest>(retained);
+        for (int i = 0; i < retained; i++) {
+            parsed.add(GreetServiceGrpc.getGreetMethod().parseRequest(new ByteArrayInputStream(bytes)));
+        }
+        long bytesPerRequest = (usedHeapAfterGc() - heapBefore) / retained;
+        logger.info(String.format("%s runtime: %d bytes of heap per parsed GreetRequest (%d held)",
+                runtime, bytesPerRequest, parsed.size()));
+        parsed.clear();
+
+        Greeting.GreetBatchRequest.Builder batch = Greeting.GreetBatchRequest.newBuilder();
+        for (int i = 0; i < batchSize; i++) {
+            batch.addGreeters(Greeting.Greeter.newBuilder().setFirstName("John" + i).setLastName("Doe"));
+        }
+        Greeting.GreetBatchRequest batchRequest = batch.build();
+
+        // Warm up both paths before measuring
+        throughput(GreetServiceGrpc.getGreetMethod(), request);
+        throughput(GreetServiceGrpc.getGreetBatchMethod(), batchRequest);
+        logger.info(String.format("%s runtime: GreetRequest %,.0f round trips/s, GreetBatchRequest of %d %,.0f round trips/s",
+                runtime,
+                throughput(GreetServiceGrpc.getGreetMethod(), request),
+                batchSize,
+                throughput(GreetServiceGrpc.getGreetBatchMethod(), batchRequest)));
+    }
+}
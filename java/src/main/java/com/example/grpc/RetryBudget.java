@@ -0,0 +1,40 @@
+package com.example.grpc;
+
+/**
+ * Token bucket limiting retries and hedges to a percentage of the original traffic.
+ * <p>
+ * Every original call deposits {@code ratio} tokens and every retry or hedge withdraws one, so
+ * that under a total outage the extra load converges to {@code ratio} of the regular load instead
+ * of multiplying it. A small reserve allows retries at low traffic.
+ */
+class RetryBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * @param percent    retries allowed as a percentage of original calls
+     * @param minReserve tokens available before any call has been made, also the bucket size
+     */
+    RetryBudget(double percent, int minReserve) {
+        this.ratio = percent / 100.0;
+        this.maxTokens = Math.max(minReserve, 1);
+        this.tokens = minReserve;
+    }
+
+    synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized double available() {
+        return tokens;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.grpc;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.util.concurrent.AbstractEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop group that sets {@code SO_REUSEPORT} on the listening sockets registered with it.
+ * <p>
+ * gRPC only applies options to accepted channels, and the epoll listening channel cannot be subclassed.
+ * A listening channel is registered with its group before it is bound though, so the option is set
+ * here. Everything else is passed on to the wrapped group.
+ */
+class ReusePortEventLoopGroup extends AbstractEventExecutorGroup implements EventLoopGroup {
+    private final EventLoopGroup delegate;
+
+    ReusePortEventLoopGroup(EventLoopGroup delegate) {
+        this.delegate = delegate;
+    }
+
+    private static void enableReusePort(Channel channel) {
+        if (channel instanceof EpollServerSocketChannel) {
+            ((EpollServerSocketChannel) channel).config().setReusePort(true);
+        }
+    }
+
+    @Override
+    public ChannelFuture register(Channel channel) {
+        enableReusePort(channel);
+        return delegate.register(channel);
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        enableReusePort(promise.channel());
+        return delegate.register(promise);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        enableReusePort(channel);
+        return delegate.register(channel, promise);
+    }
+
+    @Override
+    public EventLoop next() {
+        return delegate.next();
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return delegate.isShuttingDown();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return delegate.shutdownGracefully(quietPeriod, timeout, unit);
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return delegate.terminationFuture();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.grpc;
+
+import io.grpc.ClientInterceptor;
+import io.grpc.ServerStreamTracer;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+
+/**
+ * Emits a Flight Recorder {@code RpcEvent} per call on the server and on the client.
+ * <p>
+ * Stream tracers see every call with its request headers, the wire size of each message and the final
+ * status. A call only becomes an event while a Flight Recorder recording enables it and, once the call
+ * closed, only when it took longer than the threshold of the recording; otherwise the tracer does nothing.
+ * On the client the tracer is attached per call, so that it knows the method, and sees each attempt of
+ * a retried call separately.
+ * <p>
+ * The event and the tracers live in {@code src/jfr/java}, which the {@code flight-recorder} profile only
+ * compiles on JDK 11 and later, and are loaded by name here. The builders are left as they are when the
+ * tracers were not built or the JVM has no Flight Recorder.
+ */
+final class RpcEventTracing {
+    private static final Tracers TRACERS = loadTracers();
+
+    /**
+     * The tracers, implemented by {@code FlightRecorderTracers}.
+     */
+    interface Tracers {
+        ServerStreamTracer.Factory newServerTracerFactory(String side);
+
+        ClientInterceptor newClientInterceptor();
+    }
+
+    private RpcEventTracing() {
+    }
+
+    private static Tracers loadTracers() {
+        try {
+            if (!(Boolean) Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null)) {
+                return null;
+            }
+            return (Tracers) Class.forName("com.example.grpc.FlightRecorderTracers")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    static NettyServerBuilder configure(NettyServerBuilder builder) {
+        return TRACERS != null ? builder.addStreamTracerFactory(TRACERS.newServerTracerFactory("server")) : builder;
+    }
+
+    /**
+     * Traces the synthetic calls of {@link WarmUp}, their events are of the {@code warm-up} side.
+     */
+    static InProcessServerBuilder configureWarmUp(InProcessServerBuilder builder) {
+        return TRACERS != null ? builder.addStreamTracerFactory(TRACERS.newServerTracerFactory("warm-up")) : builder;
+    }
+
+    static NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        return TRACERS != null ? builder.intercept(TRACERS.newClientInterceptor()) : builder;
+    }
+}
@@ -3,61 +3,436 @@ package com.example.grpc;
 import com.example.grpc.protos.GreetServiceGrpc;
 
 import com.example.grpc.protos.Greeting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.*;
+import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NettyServerBuilder;
 import io.grpc.stub.StreamObserver;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionStats;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 import org.apache.commons.cli.*;
 
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ServerApplication {
     private static final Logger logger = Logger.getLogger(ServerApplication.class.getName());
-    private Server server;
+    private final List<Server> servers = new ArrayList<Server>();
+    private final List<EventLoopGroup> eventLoopGroups = new ArrayList<EventLoopGroup>();
+    private Server domainSocketServer;
+    private EventLoopGroup domainSocketEventLoopGroup;
 
     private final int port;
     private final String certChainFilePath;
     private final String privateKeyFilePath;
     private final String trustCertCollectionFilePath;
+    private final int executorThreads;
+    private final int eventLoopThreads;
+    private final int loadReportInterval;
+    private final boolean singleFlight;
+    private final long tlsSessionCacheSize;
+    private final long tlsSessionTimeout;
+    private final long ticketKeyRotationSeconds;
+    private final long metricsLogIntervalSeconds;
+    private final SslProvider sslProvider;
+    private final String cipherPreference;
+    private final long certReloadIntervalSeconds;
+    private final String domainSocketPath;
+    private final int listeners;
+    private final FlowControl flowControl;
+    private final ConnectionManagement connectionManagement;
+    private final BufferAllocation bufferAllocation;
+    private final long drainDelayMillis;
+    private final long drainTimeoutSeconds;
+    private final int healthMaxInFlight;
+    private final int healthMaxQueueDepth;
+    private final long healthMaxLagMillis;
+    private final long healthCheckIntervalMillis;
+    private final long warmUpSeconds;
+    private final long watchdogThresholdMillis;
+    private final double callCostSampleRate;
+    private final TrafficCapture trafficCapture;
+
+    private ThreadPoolExecutor executor;
+    private LoadReportingInterceptor loadReportingInterceptor;
+    private ScheduledExecutorService housekeeping;
+    private LoadAwareHealth health;
 
 
     // For command line argument parse
     private static String serverPort;
     private static String serverCertFilePath;
     private static String serverKeyFilePath;
+    private static String serverTrustFilePath;
+    private static String serverExecutorThreads;
+    private static String serverEventLoopThreads;
+    private static String serverLoadReportInterval;
+    private static boolean serverSingleFlight;
+    private static String serverTlsSessionCacheSize;
+    private static String serverTlsSessionTimeout;
+    private static String serverTicketKeyRotation;
+    private static String serverMetricsLogInterval;
+    private static String serverSslProvider;
+    private static String serverCiphers;
+    private static String serverCertReloadInterval;
+    private static String serverDomainSocketPath;
+    private static String serverListeners;
+    private static String serverFlowControlWindow;
+    private static String serverMaxInboundMessageSize;
+    private static boolean serverBdp;
+    private static String serverKeepAliveTime;
+    private static String serverKeepAliveTimeout;
+    private static String serverMaxConnectionIdle;
+    private static String serverMaxConnectionAge;
+    private static String serverMaxConnectionAgeGrace;
+    private static String serverPermitKeepAliveTime;
+    private static String serverMaxConcurrentCalls;
+    private static String serverAllocatorArenas;
+    private static String serverAllocatorChunkSize;
+    private static String serverAllocatorThreadCaches;
+    private static String serverLeakDetection;
+    private static String serverDrainDelay;
+    private static String serverDrainTimeout;
+    private static String serverHealthMaxInFlight;
+    private static String serverHealthMaxQueueDepth;
+    private static String serverHealthMaxLag;
+    private static String serverHealthCheckInterval;
+    private static String serverWarmUp;
+    private static String serverWatchdogThreshold;
+    private static String serverCallCostSampleRate;
+    private static String serverCaptureDir;
+    private static String serverCaptureBufferSize;
+    private static String serverCaptureSegmentSize;
+    private static String serverCaptureMaxSegments;
 
     private ServerApplication(int port,
                               String certChainFilePath,
                               String privateKeyFilePath,
-                              String trustCertCollectionFilePath) {
+                              String trustCertCollectionFilePath,
+                              int executorThreads,
+                              int eventLoopThreads,
+                              int loadReportInterval,
+                              boolean singleFlight,
+                              long tlsSessionCacheSize,
+                              long tlsSessionTimeout,
+                              long ticketKeyRotationSeconds,
+                              long metricsLogIntervalSeconds,
+                              SslProvider sslProvider,
+                              String cipherPreference,
+                              long certReloadIntervalSeconds,
+                              String domainSocketPath,
+                              int listeners,
+                              FlowControl flowControl,
+                              ConnectionManagement connectionManagement,
+                              BufferAllocation bufferAllocation,
+                              long drainDelayMillis,
+                              long drainTimeoutSeconds,
+                              int healthMaxInFlight,
+                              int healthMaxQueueDepth,
+                              long healthMaxLagMillis,
+                              long healthCheckIntervalMillis,
+                              long warmUpSeconds,
+                              long watchdogThresholdMillis,
+                              double callCostSampleRate,
+                              TrafficCapture trafficCapture) {
         this.port = port;
         this.certChainFilePath = certChainFilePath;
         this.privateKeyFilePath = privateKeyFilePath;
         this.trustCertCollectionFilePath = trustCertCollectionFilePath;
+        this.executorThreads = executorThreads;
+        this.eventLoopThreads = eventLoopThreads;
+        this.loadReportInterval = loadReportInterval;
+        this.singleFlight = singleFlight;
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        this.tlsSessionTimeout = tlsSessionTimeout;
+        this.ticketKeyRotationSeconds = ticketKeyRotationSeconds;
+        this.metricsLogIntervalSeconds = metricsLogIntervalSeconds;
+        this.sslProvider = sslProvider;
+        this.cipherPreference = cipherPreference;
+        this.certReloadIntervalSeconds = certReloadIntervalSeconds;
+        this.domainSocketPath = domainSocketPath;
+        this.listeners = listeners;
+        this.flowControl = flowControl;
+        this.connectionManagement = connectionManagement;
+        this.bufferAllocation = bufferAllocation;
+        this.drainDelayMillis = drainDelayMillis;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+        this.healthMaxInFlight = healthMaxInFlight;
+        this.healthMaxQueueDepth = healthMaxQueueDepth;
+        this.healthMaxLagMillis = healthMaxLagMillis;
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+        this.warmUpSeconds = warmUpSeconds;
+        this.watchdogThresholdMillis = watchdogThresholdMillis;
+        this.callCostSampleRate = callCostSampleRate;
+        this.trafficCapture = trafficCapture;
     }
 
-    private SslContextBuilder getSslContextBuilder() {
-        SslContextBuilder sslClientContextBuilder = SslContextBuilder.forServer(new File(certChainFilePath),
-                new File(privateKeyFilePath));
+    private SslContextBuilder getSslContextBuilder() throws IOException {
+        SslContextBuilder sslClientContextBuilder;
+        if (certReloadIntervalSeconds > 0) {
+            ReloadingKeyManager keyManager;
+            try {
+                keyManager = new ReloadingKeyManager(new File(certChainFilePath), new File(privateKeyFilePath));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to load " + certChainFilePath + " and " + privateKeyFilePath, e);
+            }
+            keyManager.startWatching(certReloadIntervalSeconds, TimeUnit.SECONDS);
+            sslClientContextBuilder = SslContextBuilder.forServer(keyManager.newKeyManagerFactory());
+        } else {
+            sslClientContextBuilder = SslContextBuilder.forServer(new File(certChainFilePath),
+                    new File(privateKeyFilePath));
+        }
         if (trustCertCollectionFilePath != null) {
             sslClientContextBuilder.trustManager(new File(trustCertCollectionFilePath));
             sslClientContextBuilder.clientAuth(ClientAuth.REQUIRE);
         }
-        return GrpcSslContexts.configure(sslClientContextBuilder);
+        sslClientContextBuilder.sessionCacheSize(tlsSessionCacheSize);
+        sslClientContextBuilder.sessionTimeout(tlsSessionTimeout);
+        return TlsTuning.configure(sslClientContextBuilder, sslProvider, cipherPreference);
+    }
+
+    /**
+     * Rotates the session ticket key and exports resumption statistics when the native provider is in use.
+     * The JDK provider supports neither, it only honours the session cache size and timeout.
+     */
+    private void configureSessionResumption(SslContext sslContext) {
+        if (!(sslContext.sessionContext() instanceof OpenSslSessionContext)) {
+            logger.info("TLS provider " + sslContext.getClass().getSimpleName()
+                    + " does not support session tickets or resumption statistics");
+            return;
+        }
+        final OpenSslSessionContext sessionContext = (OpenSslSessionContext) sslContext.sessionContext();
+        if (ticketKeyRotationSeconds > 0) {
+            housekeeping.scheduleAtFixedRate(new SessionTicketKeyRotator(sessionContext),
+                    0, ticketKeyRotationSeconds, TimeUnit.SECONDS);
+        }
+        // BoringSSL does not maintain the accept counters, handshakes are counted by HandshakeCounter instead
+        Metrics.gauge("server.tls.resumed", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                OpenSslSessionStats stats = sessionContext.stats();
+                return stats.hits() + stats.ticketKeyResume();
+            }
+        });
+        Metrics.gauge("server.tls.resumption_hit_rate", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                OpenSslSessionStats stats = sessionContext.stats();
+                long handshakes = Metrics.counter("server.tls.handshakes").get();
+                return handshakes == 0 ? 0 : (double) (stats.hits() + stats.ticketKeyResume()) / handshakes;
+            }
+        });
+    }
+
+    /**
+     * Counts completed TLS handshakes, one per secured transport.
+     */
+    static class HandshakeCounter extends ServerTransportFilter {
+        @Override
+        public Attributes transportReady(Attributes transportAttrs) {
+            if (transportAttrs.get(Grpc.TRANSPORT_ATTR_SSL_SESSION) != null) {
+                Metrics.counter("server.tls.handshakes").incrementAndGet();
+            }
+            return transportAttrs;
+        }
+    }
+
+    /**
+     * Extracts the subject of the verified client certificate once per connection and caches it in the
+     * transport attributes, where every call on the connection finds it without parsing any header.
+     */
+    static class PeerIdentityFilter extends ServerTransportFilter {
+        static final Attributes.Key<String> PEER_IDENTITY = Attributes.Key.create("peer-identity");
+
+        @Override
+        public Attributes transportReady(Attributes transportAttrs) {
+            SSLSession session = transportAttrs.get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
+            if (session == null) {
+                return transportAttrs;
+            }
+            try {
+                Certificate[] peerCertificates = session.getPeerCertificates();
+                if (peerCertificates.length == 0 || !(peerCertificates[0] instanceof X509Certificate)) {
+                    return transportAttrs;
+                }
+                String identity = ((X509Certificate) peerCertificates[0]).getSubjectX500Principal().getName();
+                Metrics.counter("server.tls.peer_identities").incrementAndGet();
+                return transportAttrs.toBuilder().set(PEER_IDENTITY, identity).build();
+            } catch (SSLPeerUnverifiedException e) {
+                return transportAttrs;
+            }
+        }
+    }
+
+    /**
+     * Counts the connections accepted by one listener, to show how the kernel spreads them.
+     */
+    static class ListenerConnectionCounter extends ServerTransportFilter {
+        private final AtomicLong connections;
+
+        ListenerConnectionCounter(int listener) {
+            this.connections = Metrics.counter("server.listener." + listener + ".connections");
+        }
+
+        @Override
+        public Attributes transportReady(Attributes transportAttrs) {
+            connections.incrementAndGet();
+            return transportAttrs;
+        }
+    }
+
+    /**
+     * Counts opened and closed connections and their lifetime, which shows the churn caused by the
+     * maximum connection age and idle time.
+     */
+    static class ConnectionChurnCounter extends ServerTransportFilter {
+        private static final Attributes.Key<Long> OPENED_AT = Attributes.Key.create("opened-at");
+
+        ConnectionChurnCounter() {
+            Metrics.gauge("server.connections.open", new Metrics.Gauge() {
+                @Override
+                public double value() {
+                    return Metrics.counter("server.connections.opened").get()
+                            - Metrics.counter("server.connections.closed").get();
+                }
+            });
+            Metrics.gauge("server.connections.mean_lifetime_seconds", new Metrics.Gauge() {
+                @Override
+                public double value() {
+                    return Metrics.ratio("server.connections.lifetime_millis", "server.connections.closed") / 1000;
+                }
+            });
+        }
+
+        @Override
+        public Attributes transportReady(Attributes transportAttrs) {
+            Metrics.counter("server.connections.opened").incrementAndGet();
+            return transportAttrs.toBuilder().set(OPENED_AT, System.nanoTime()).build();
+        }
+
+        @Override
+        public void transportTerminated(Attributes transportAttrs) {
+            Long openedAt = transportAttrs.get(OPENED_AT);
+            if (openedAt == null) {
+                // Closed before it was ready, e.g. a failed handshake
+                return;
+            }
+            Metrics.counter("server.connections.closed").incrementAndGet();
+            Metrics.counter("server.connections.lifetime_millis")
+                    .addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt));
+        }
     }
 
     private void start() throws IOException {
-        server = NettyServerBuilder.forPort(port)
-                .addService(ServerInterceptors.intercept(new GreetServiceImpl(),
-                        new MyAuthInterceptor()))
-                .sslContext(getSslContextBuilder().build())
-                .build()
-                .start();
-        logger.info("Server started, listening on " + port);
+        // A bounded pool with an explicit queue, so that the queue depth can be reported as load
+        executor = new ThreadPoolExecutor(executorThreads, executorThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-app-%d").build());
+        loadReportingInterceptor = new LoadReportingInterceptor(loadReportInterval, executor);
+        housekeeping = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-housekeeping-%d").build());
+        if (metricsLogIntervalSeconds > 0) {
+            housekeeping.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    logger.info("Server metrics:\n" + Metrics.snapshot());
+                }
+            }, metricsLogIntervalSeconds, metricsLogIntervalSeconds, TimeUnit.SECONDS);
+        }
+
+        SslContext sslContext = getSslContextBuilder().build();
+        configureSessionResumption(sslContext);
+
+        List<ServerInterceptor> interceptors = new ArrayList<ServerInterceptor>();
+        if (callCostSampleRate > 0) {
+            interceptors.add(new CallCostInterceptor(callCostSampleRate));
+        }
+        interceptors.add(new MyAuthInterceptor());
+        interceptors.add(loadReportingInterceptor);
+        if (trafficCapture != null) {
+            interceptors.add(trafficCapture);
+        }
+        ServerServiceDefinition service = ServerInterceptors.intercept(new GreetServiceImpl(singleFlight, executor),
+                interceptors);
+        // Behind the same interceptors, which tell the synthetic calls apart, without logging or counting them
+        ServerServiceDefinition warmUpService = ServerInterceptors.intercept(
+                new GreetServiceImpl(singleFlight, executor, "server.warmup.greet.", false), interceptors);
+        if (listeners > 1 && !Epoll.isAvailable()) {
+            throw new IOException("Multiple listeners need the native epoll transport", Epoll.unavailabilityCause());
+        }
+        if (domainSocketPath != null && !Epoll.isAvailable()) {
+            throw new IOException("Unix domain sockets need the native epoll transport", Epoll.unavailabilityCause());
+        }
+        // The event loops are created here rather than shared gRPC ones, so that their lag can be probed
+        if (listeners == 1) {
+            if (eventLoopThreads != 1) {
+                eventLoopGroups.add(newEventLoopGroup(1, "grpc-boss-%d"));
+            }
+            // A single event loop also accepts its connections instead of a thread that only accepts
+            eventLoopGroups.add(newEventLoopGroup(eventLoopThreads, "grpc-worker-%d"));
+        } else {
+            for (int i = 0; i < listeners; i++) {
+                // One SO_REUSEPORT socket per event loop, which accepts and then serves its own connections
+                eventLoopGroups.add(new ReusePortEventLoopGroup(newEventLoopGroup(1, "grpc-listener-" + i + "-%d")));
+            }
+        }
+        if (domainSocketPath != null) {
+            domainSocketEventLoopGroup = newEventLoopGroup(1, "grpc-uds-%d");
+            eventLoopGroups.add(domainSocketEventLoopGroup);
+        }
+        final EventLoopLagProbe lagProbe = new EventLoopLagProbe(eventLoopGroups, executor, watchdogThresholdMillis);
+        health = new LoadAwareHealth(loadReportingInterceptor, lagProbe,
+                healthMaxInFlight, healthMaxQueueDepth, healthMaxLagMillis, warmUpSeconds > 0);
+        housekeeping.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                // Probed during warm-up and drain as well, when the health status is not checked
+                lagProbe.probe();
+                health.check();
+            }
+        }, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        ServerServiceDefinition healthService = health.getHealthService();
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
@@ -67,45 +442,408 @@ public class ServerApplication {
                 System.err.println("*** server shut down");
             }
         });
+        // Before listening, so that real calls neither meet the cold code nor compete with the warm-up
+        if (warmUpSeconds > 0) {
+            try {
+                new WarmUp(warmUpService, healthService, executor).run(TimeUnit.SECONDS.toMillis(warmUpSeconds));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            health.warmedUp();
+        }
+
+        ConnectionChurnCounter connectionChurnCounter = new ConnectionChurnCounter();
+        for (int i = 0; i < listeners; i++) {
+            NettyServerBuilder builder = bufferAllocation.configure(connectionManagement.configure(
+                    flowControl.configure(NettyServerBuilder.forPort(port))))
+                    .executor(executor)
+                    .addService(service)
+                    .addService(healthService)
+                    .sslContext(sslContext)
+                    .addTransportFilter(connectionChurnCounter)
+                    .addTransportFilter(new HandshakeCounter())
+                    .addTransportFilter(new PeerIdentityFilter());
+            RpcEventTracing.configure(builder);
+            if (listeners == 1) {
+                builder.channelType(Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                        .bossEventLoopGroup(eventLoopGroups.get(0))
+                        .workerEventLoopGroup(eventLoopGroups.get(eventLoopThreads != 1 ? 1 : 0));
+            } else {
+                builder.channelType(EpollServerSocketChannel.class)
+                        .bossEventLoopGroup(eventLoopGroups.get(i))
+                        .workerEventLoopGroup(eventLoopGroups.get(i))
+                        .addTransportFilter(new ListenerConnectionCounter(i));
+            }
+            servers.add(builder.build().start());
+        }
+        logger.info("Server started, listening on " + port + " with " + listeners + " listener(s) using TLS provider "
+                + sslProvider + " with ciphers " + sslContext.cipherSuites() + ", buffers: " + bufferAllocation);
+        if (domainSocketPath != null) {
+            startDomainSocketServer(service, healthService);
+        }
     }
 
-    private void stop() {
-        if (server != null) {
+    /**
+     * Serves co-located callers over a Unix domain socket, in plaintext since the traffic never leaves the host.
+     * Callers running as the same user are identified by their peer credentials, and the socket file is
+     * restricted to that user as well.
+     */
+    private void startDomainSocketServer(ServerServiceDefinition service, ServerServiceDefinition healthService)
+            throws IOException {
+        File socketFile = new File(domainSocketPath);
+        // A socket file left behind by an earlier process would fail the bind
+        if (socketFile.exists() && !socketFile.delete()) {
+            throw new IOException("Could not remove stale socket " + socketFile);
+        }
+        domainSocketServer = RpcEventTracing.configure(bufferAllocation.configure(
+                flowControl.configure(NettyServerBuilder.forAddress(new DomainSocketAddress(socketFile)))))
+                .channelType(EpollServerDomainSocketChannel.class)
+                // gRPC enables TCP keepalive by default, which does not apply to domain sockets
+                .withChildOption(ChannelOption.SO_KEEPALIVE, null)
+                .bossEventLoopGroup(domainSocketEventLoopGroup)
+                .workerEventLoopGroup(domainSocketEventLoopGroup)
+                .protocolNegotiator(new PeerCredentialsNegotiator(
+                        (Integer) Files.getAttribute(Paths.get("/proc/self"), "unix:uid")))
+                .executor(executor)
+                .addService(service)
+                .addService(healthService)
+                .build()
+                .start();
+        Files.setPosixFilePermissions(socketFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+        logger.info("Server listening on Unix domain socket " + socketFile);
+    }
+
+    /**
+     * Drains the server: reports it as no longer serving, keeps serving for the drain delay so that load
+     * balancers checking the health stop sending calls first, then sends GOAWAY on every connection so that
+     * clients move new calls elsewhere, and gives the calls and streams in flight up to the drain timeout to
+     * finish. Whatever is still running then is cancelled.
+     */
+    private void drain() {
+        List<Server> draining = new ArrayList<Server>(servers);
+        if (domainSocketServer != null) {
+            draining.add(domainSocketServer);
+        }
+        health.enterTerminalState();
+        if (drainDelayMillis > 0 && !draining.isEmpty()) {
+            System.err.println("*** reported NOT_SERVING, refusing new calls in " + drainDelayMillis + " ms");
+            try {
+                Thread.sleep(drainDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int inFlight = loadReportingInterceptor.getInFlight();
+        long started = loadReportingInterceptor.getStarted();
+        System.err.println("*** draining " + inFlight + " call(s) in flight for up to " + drainTimeoutSeconds + "s");
+        long start = System.nanoTime();
+        for (Server server : draining) {
             server.shutdown();
         }
+        long deadline = start + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        boolean terminated = true;
+        try {
+            for (Server server : draining) {
+                terminated &= server.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminated = false;
+        }
+        // A terminated server has no calls left, the in-flight count may just not have caught up yet
+        int aborted = terminated ? 0 : loadReportingInterceptor.getInFlight();
+        for (Server server : draining) {
+            server.shutdownNow();
+        }
+        // Calls may still start until the GOAWAY reaches their client, those are drained as well
+        long startedWhileDraining = loadReportingInterceptor.getStarted() - started;
+        Metrics.counter("server.drain.calls_drained").addAndGet(Math.max(0, inFlight + startedWhileDraining - aborted));
+        Metrics.counter("server.drain.calls_aborted").addAndGet(aborted);
+        Metrics.counter("server.drain.millis").addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @param threads 0 for Netty's default of twice the number of cores
+     */
+    private static EventLoopGroup newEventLoopGroup(int threads, String nameFormat) {
+        ThreadFactory threadFactory = BufferAllocation.eventLoopThreadFactory(nameFormat);
+        return Epoll.isAvailable()
+                ? new EpollEventLoopGroup(threads, threadFactory)
+                : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    private void stop() {
+        drain();
+        if (trafficCapture != null) {
+            try {
+                trafficCapture.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (EventLoopGroup eventLoopGroup : eventLoopGroups) {
+            eventLoopGroup.shutdownGracefully();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (housekeeping != null) {
+            housekeeping.shutdownNow();
+            System.err.println("*** server metrics:\n" + Metrics.snapshot());
+        }
+    }
+
+    /**
+     * Hosts the greeting service inside the calling JVM, for clients on an
+     * {@link io.grpc.inprocess.InProcessChannelBuilder} channel of the same {@code name}.
+     * <p>
+     * Requests and responses are handed over by reference: the protobuf marshaller recognises its own
+     * messages on the other end and skips serialization, so both ends must use the same generated classes.
+     * Calls are authenticated with the token like remote ones.
+     *
+     * @param executor runs the service, {@code MoreExecutors.directExecutor()} runs calls on the caller's thread
+     * @return the started server, to be shut down by the caller
+     */
+    public static Server startInProcess(String name, Executor executor) throws IOException {
+        return InProcessServerBuilder.forName(name)
+                .executor(executor)
+                .addService(ServerInterceptors.intercept(new GreetServiceImpl(false, executor),
+                        new MyAuthInterceptor()))
+                .build()
+                .start();
     }
 
     /**
      * Await termination on the main thread since the grpc library uses daemon threads.
      */
     private void blockUntilShutdown() throws InterruptedException {
-        if (server != null) {
+        for (Server server : servers) {
             server.awaitTermination();
         }
     }
 
     static class GreetServiceImpl extends GreetServiceGrpc.GreetServiceImplBase {
+        /**
+         * Batches larger than this are split into chunks greeted in parallel on the batch executor.
+         */
+        static final int BATCH_CHUNK_SIZE = 256;
+        /**
+         * Responses sent by {@code GreetManyTimes}.
+         */
+        static final int GREET_MANY_TIMES_COUNT = 10;
+
+        private final SingleFlight<Greeting.Greeter, Greeting.GreetResponse> singleFlight;
+        private final ListeningExecutorService executor;
+        private final boolean logCalls;
+
+        /**
+         * @param coalesce share one computation between identical greetings that are in flight together
+         * @param executor executor for the chunks of large batches and for coalesced greetings
+         */
+        GreetServiceImpl(boolean coalesce, Executor executor) {
+            this(coalesce, executor, "server.greet.", true);
+        }
+
+        /**
+         * @param metricPrefix prefix of the metrics of the service, another one counts synthetic calls apart
+         * @param logCalls     log every call, off for synthetic calls that would flood the log
+         */
+        GreetServiceImpl(boolean coalesce, Executor executor, String metricPrefix, boolean logCalls) {
+            this.logCalls = logCalls;
+            this.singleFlight = coalesce
+                    ? new SingleFlight<Greeting.Greeter, Greeting.GreetResponse>(metricPrefix + "single_flight.")
+                    : null;
+            this.executor = executor instanceof ExecutorService
+                    ? MoreExecutors.listeningDecorator((ExecutorService) executor)
+                    : MoreExecutors.newDirectExecutorService();
+        }
+
         @Override
-        public void greet(Greeting.GreetRequest req, StreamObserver<Greeting.GreetResponse> responseObserver) {
+        public void greet(final Greeting.GreetRequest req, final StreamObserver<Greeting.GreetResponse> responseObserver) {
+            if (singleFlight == null) {
+                responseObserver.onNext(buildGreeting(req.getGreeter()));
+                responseObserver.onCompleted();
+                return;
+            }
+
+            ListenableFuture<Greeting.GreetResponse> response = singleFlight.execute(req.getGreeter(),
+                    new SingleFlight.Loader<Greeting.GreetResponse>() {
+                        @Override
+                        public ListenableFuture<Greeting.GreetResponse> load() {
+                            // Queued behind the other calls, identical greetings arriving meanwhile share it
+                            return executor.submit(new Callable<Greeting.GreetResponse>() {
+                                @Override
+                                public Greeting.GreetResponse call() {
+                                    return buildGreeting(req.getGreeter());
+                                }
+                            });
+                        }
+                    });
+            Futures.addCallback(response, new FutureCallback<Greeting.GreetResponse>() {
+                @Override
+                public void onSuccess(Greeting.GreetResponse result) {
+                    responseObserver.onNext(result);
+                    responseObserver.onCompleted();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    responseObserver.onError(Status.fromThrowable(t).asRuntimeException());
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        @Override
+        public void greetManyTimes(Greeting.GreetRequest req, StreamObserver<Greeting.GreetResponse> responseObserver) {
+            logCall("GreetManyTimes function was invoked with " + req.getGreeter().getFirstName());
             String firstName = req.getGreeter().getFirstName();
-            logger.info("Received greeting from " + firstName);
-            Greeting.GreetResponse response = Greeting.GreetResponse.newBuilder()
-                    .setResult("Hello " + firstName + "!")
-                    .build();
-            responseObserver.onNext(response);
+            for (int i = 0; i < GREET_MANY_TIMES_COUNT; i++) {
+                responseObserver.onNext(Greeting.GreetResponse.newBuilder()
+                        .setResult("Hello " + firstName + " number " + i)
+                        .build());
+            }
             responseObserver.onCompleted();
         }
+
+        @Override
+        public StreamObserver<Greeting.GreetRequest> longGreet(
+                final StreamObserver<Greeting.GreetResponse> responseObserver) {
+            logCall("LongGreet function was invoked with a streaming request");
+            return new StreamObserver<Greeting.GreetRequest>() {
+                private final StringBuilder result = new StringBuilder();
+
+                @Override
+                public void onNext(Greeting.GreetRequest req) {
+                    result.append("Hello ").append(req.getGreeter().getFirstName()).append("! ");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    logger.log(Level.FINE, "LongGreet cancelled", t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onNext(Greeting.GreetResponse.newBuilder()
+                            .setResult(result.toString())
+                            .build());
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<Greeting.GreetRequest> greetEveryone(
+                final StreamObserver<Greeting.GreetResponse> responseObserver) {
+            logCall("GreetEveryone function was invoked with a streaming request");
+            return new StreamObserver<Greeting.GreetRequest>() {
+                @Override
+                public void onNext(Greeting.GreetRequest req) {
+                    responseObserver.onNext(Greeting.GreetResponse.newBuilder()
+                            .setResult("Hello " + req.getGreeter().getFirstName() + "! ")
+                            .build());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    logger.log(Level.FINE, "GreetEveryone cancelled", t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public void greetBatch(Greeting.GreetBatchRequest req,
+                               final StreamObserver<Greeting.GreetBatchResponse> responseObserver) {
+            final List<Greeting.Greeter> greeters = req.getGreetersList();
+            logCall("Received batch of " + greeters.size() + " greetings");
+            if (greeters.size() <= BATCH_CHUNK_SIZE) {
+                responseObserver.onNext(Greeting.GreetBatchResponse.newBuilder()
+                        .addAllResults(greetChunk(greeters))
+                        .build());
+                responseObserver.onCompleted();
+                return;
+            }
+
+            // Chunks complete asynchronously so no executor thread is parked waiting for the others
+            List<ListenableFuture<List<Greeting.GreetResponse>>> chunks
+                    = new ArrayList<ListenableFuture<List<Greeting.GreetResponse>>>();
+            for (int from = 0; from < greeters.size(); from += BATCH_CHUNK_SIZE) {
+                final List<Greeting.Greeter> chunk
+                        = greeters.subList(from, Math.min(greeters.size(), from + BATCH_CHUNK_SIZE));
+                chunks.add(executor.submit(new Callable<List<Greeting.GreetResponse>>() {
+                    @Override
+                    public List<Greeting.GreetResponse> call() {
+                        return greetChunk(chunk);
+                    }
+                }));
+            }
+            Futures.addCallback(Futures.allAsList(chunks), new FutureCallback<List<List<Greeting.GreetResponse>>>() {
+                @Override
+                public void onSuccess(List<List<Greeting.GreetResponse>> results) {
+                    Greeting.GreetBatchResponse.Builder response = Greeting.GreetBatchResponse.newBuilder();
+                    for (List<Greeting.GreetResponse> chunk : results) {
+                        response.addAllResults(chunk);
+                    }
+                    responseObserver.onNext(response.build());
+                    responseObserver.onCompleted();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    responseObserver.onError(Status.fromThrowable(t).asRuntimeException());
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        private static List<Greeting.GreetResponse> greetChunk(List<Greeting.Greeter> greeters) {
+            List<Greeting.GreetResponse> results = new ArrayList<Greeting.GreetResponse>(greeters.size());
+            for (Greeting.Greeter greeter : greeters) {
+                results.add(greeting(greeter));
+            }
+            return results;
+        }
+
+        private Greeting.GreetResponse buildGreeting(Greeting.Greeter greeter) {
+            logCall("Received greeting from " + greeter.getFirstName());
+            return greeting(greeter);
+        }
+
+        private void logCall(String message) {
+            if (logCalls) {
+                logger.info(message);
+            }
+        }
+
+        private static Greeting.GreetResponse greeting(Greeting.Greeter greeter) {
+            return Greeting.GreetResponse.newBuilder()
+                    .setResult("Hello " + greeter.getFirstName() + "!")
+                    .build();
+        }
     }
 
     static class MyAuthInterceptor implements ServerInterceptor {
         public static final Context.Key<Object> USER_TOKEN
                 = Context.key("token"); // "identity" is just for debugging
+        public static final Context.Key<String> PEER_IDENTITY
+                = Context.key("peer-identity");
 
         @Override
         public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
                 ServerCall<ReqT, RespT> call,
                 Metadata headers,
                 ServerCallHandler<ReqT, RespT> next) {
+            // With mutual TLS the connection already authenticated the caller, the token is not consulted
+            String identity = call.getAttributes().get(PeerIdentityFilter.PEER_IDENTITY);
+            if (identity != null) {
+                return Contexts.interceptCall(Context.current().withValue(PEER_IDENTITY, identity),
+                        call, headers, next);
+            }
             // You need to implement validateIdentity
             String token = validateToken(headers);
             if (token == null) { // this is optional, depending on your needs
@@ -144,6 +882,209 @@ public class ServerApplication {
         option.setRequired(true);
         options.addOption(option);
 
+        option = new Option(null, "trust", true,
+                "CA certificates trusted for client certificates, enables mutual TLS with the certificate subject"
+                        + " as the caller identity");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "uds", true,
+                "also listen on this Unix domain socket, plaintext and restricted to the user running the server");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "listeners", true,
+                "SO_REUSEPORT listening sockets on the port, each with its own event loop; 1 for a single shared one");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "flow-control-window", true,
+                "initial HTTP/2 receive window in bytes, 0 for the gRPC default of 1 MiB");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-inbound-message-size", true,
+                "largest accepted request in bytes, 0 for the gRPC default of 4 MiB");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "bdp", false, "grow the receive window to the measured bandwidth-delay product");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "keepalive-time", true, "seconds without reads before pinging a client, 0 for the default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "keepalive-timeout", true, "seconds to wait for a ping acknowledgement, 0 for the default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-connection-idle", true, "seconds before closing a connection without calls, 0 for never");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-connection-age", true,
+                "seconds before sending GOAWAY so that clients reconnect and rebalance, 0 for never");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-connection-age-grace", true,
+                "seconds calls in flight get to finish after the GOAWAY, 0 for unlimited");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "permit-keepalive-time", true,
+                "most frequent client keepalive pings tolerated in seconds, 0 for the default of 5 minutes");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "max-concurrent-calls", true,
+                "calls a client may have open per connection, further calls wait on the client, 0 for no limit");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-arenas", true,
+                "pooled buffer arenas, heap and direct each, 0 for the Netty default of 2 per core");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-chunk-size", true,
+                "pooled buffer chunk size in KiB, a power of two of at least 8, 0 for the Netty default of 16 MiB");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "allocator-thread-caches", true,
+                "threads caching freed buffers, all, event-loops or none");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "leak-detection", true,
+                "buffer leak detection, disabled, simple (samples 1 in 128), advanced or paranoid");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "drain-delay", true,
+                "milliseconds between reporting NOT_SERVING on shutdown and refusing new calls, so that load"
+                        + " balancers move the traffic first; 0 to refuse them right away");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "drain-timeout", true,
+                "seconds calls in flight get to finish on shutdown before they are cancelled");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "health-max-in-flight", true,
+                "calls in flight above which the health service reports NOT_SERVING, 0 to ignore them");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "health-max-queue-depth", true,
+                "queued executor tasks above which the health service reports NOT_SERVING, 0 to ignore them");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "health-max-event-loop-lag", true,
+                "event loop lag in milliseconds above which the health service reports NOT_SERVING, 0 to ignore it");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "health-check-interval", true, "milliseconds between load checks of the health service and probes of the event loops");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "warm-up", true,
+                "at most N seconds of synthetic calls to compile the hot paths before listening, 0 to skip");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "watchdog-threshold", true,
+                "probe lag in milliseconds after which the stacks of the blocking event loop or executor threads"
+                        + " are logged, 0 to disable the watchdog");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "call-cost-sample-rate", true,
+                "fraction of calls whose handler allocations and CPU time are measured per method, 0 to disable");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "capture-dir", true,
+                "directory to capture every call with its headers and messages into, only the token header is"
+                        + " redacted and the files are readable by the owner only; disabled by default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "capture-buffer-size", true,
+                "MiB buffered in memory between the calls and the capture files, a power of two");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "capture-segment-size", true,
+                "MiB per capture file, more than half the capture buffer size");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "capture-max-segments", true,
+                "capture files kept, the oldest are deleted; 0 keeps them all");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "executor-threads", true, "application executor threads");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "event-loop-threads", true,
+                "event loop threads serving the connections of a single listener, 0 for the Netty default of 2 per core");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "low-memory", false,
+                "size the defaults for a sidecar with a 64 MB budget, see sidecar.sh; explicit options still apply");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "load-report-interval", true,
+                "attach load report trailers every N calls, 0 to disable");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "single-flight", false, "coalesce identical in-flight greetings");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "tls-session-cache-size", true, "TLS sessions kept for resumption, 0 for the default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "tls-session-timeout", true, "seconds a TLS session can be resumed, 0 for the default");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "tls-ticket-key-rotation", true,
+                "seconds between TLS session ticket key rotations, 0 to keep the provider's key");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "metrics-log-interval", true, "seconds between metrics log lines, 0 to disable");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "ssl-provider", true, "TLS provider, openssl (falls back to jdk) or jdk");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "ciphers", true, "preferred cipher family, auto, aes-gcm or chacha20");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "cert-reload-interval", true,
+                "watch the certificate and key and reload them for new connections, checking at least every N seconds;"
+                        + " 0 to load them once");
+        option.setRequired(false);
+        options.addOption(option);
+
         CommandLineParser parser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine cmd;
@@ -151,9 +1092,81 @@ public class ServerApplication {
         try {
             cmd = parser.parse(options, args);
 
+            // The low-memory profile only changes defaults, as lowMemory ? sidecar : large host
+            boolean lowMemory = cmd.hasOption("low-memory");
+
             serverPort = cmd.getOptionValue("port", "50051");
             serverCertFilePath = cmd.getOptionValue("cert", "");
             serverKeyFilePath = cmd.getOptionValue("key", "");
+            serverTrustFilePath = cmd.getOptionValue("trust");
+            serverExecutorThreads = cmd.getOptionValue("executor-threads",
+                    lowMemory ? "2" : Integer.toString(Runtime.getRuntime().availableProcessors() * 2));
+            serverEventLoopThreads = cmd.getOptionValue("event-loop-threads", lowMemory ? "1" : "0");
+            serverLoadReportInterval = cmd.getOptionValue("load-report-interval", "16");
+            serverSingleFlight = cmd.hasOption("single-flight");
+            serverTlsSessionCacheSize = cmd.getOptionValue("tls-session-cache-size", lowMemory ? "1024" : "20480");
+            serverTlsSessionTimeout = cmd.getOptionValue("tls-session-timeout", "3600");
+            serverTicketKeyRotation = cmd.getOptionValue("tls-ticket-key-rotation", "3600");
+            serverMetricsLogInterval = cmd.getOptionValue("metrics-log-interval", "0");
+            serverSslProvider = cmd.getOptionValue("ssl-provider", TlsTuning.PROVIDER_OPENSSL);
+            serverCiphers = cmd.getOptionValue("ciphers", TlsTuning.CIPHERS_AUTO);
+            if (!TlsTuning.isProvider(serverSslProvider)) {
+                throw new ParseException("ssl-provider must be openssl or jdk");
+            }
+            if (!TlsTuning.isCipherPreference(serverCiphers)) {
+                throw new ParseException("ciphers must be auto, aes-gcm or chacha20");
+            }
+            serverCertReloadInterval = cmd.getOptionValue("cert-reload-interval", "0");
+            serverDomainSocketPath = cmd.getOptionValue("uds");
+            serverListeners = cmd.getOptionValue("listeners", "1");
+            if (Integer.parseInt(serverListeners) < 1) {
+                // No listener would leave nothing to serve or to wait for
+                throw new ParseException("listeners must be at least 1");
+            }
+            serverFlowControlWindow = cmd.getOptionValue("flow-control-window", lowMemory ? "65535" : "0");
+            // 100 concurrent calls of 16 KiB stay within the sidecar heap along with the live set
+            serverMaxInboundMessageSize = cmd.getOptionValue("max-inbound-message-size",
+                    lowMemory ? "16384" : "0");
+            serverBdp = cmd.hasOption("bdp");
+            serverKeepAliveTime = cmd.getOptionValue("keepalive-time", "0");
+            serverKeepAliveTimeout = cmd.getOptionValue("keepalive-timeout", "0");
+            serverMaxConnectionIdle = cmd.getOptionValue("max-connection-idle", "0");
+            serverMaxConnectionAge = cmd.getOptionValue("max-connection-age", "0");
+            serverMaxConnectionAgeGrace = cmd.getOptionValue("max-connection-age-grace", "0");
+            serverPermitKeepAliveTime = cmd.getOptionValue("permit-keepalive-time", "0");
+            serverMaxConcurrentCalls = cmd.getOptionValue("max-concurrent-calls", lowMemory ? "100" : "0");
+            serverAllocatorArenas = cmd.getOptionValue("allocator-arenas", lowMemory ? "1" : "0");
+            serverAllocatorChunkSize = cmd.getOptionValue("allocator-chunk-size", lowMemory ? "256" : "0");
+            serverAllocatorThreadCaches = cmd.getOptionValue("allocator-thread-caches",
+                    lowMemory ? BufferAllocation.THREAD_CACHES_EVENT_LOOPS : BufferAllocation.THREAD_CACHES_ALL);
+            serverLeakDetection = cmd.getOptionValue("leak-detection");
+            serverDrainDelay = cmd.getOptionValue("drain-delay", "2000");
+            serverDrainTimeout = cmd.getOptionValue("drain-timeout", "30");
+            serverHealthMaxInFlight = cmd.getOptionValue("health-max-in-flight", "0");
+            serverHealthMaxQueueDepth = cmd.getOptionValue("health-max-queue-depth", lowMemory ? "100" : "1000");
+            serverHealthMaxLag = cmd.getOptionValue("health-max-event-loop-lag", "200");
+            serverHealthCheckInterval = cmd.getOptionValue("health-check-interval", "100");
+            serverWarmUp = cmd.getOptionValue("warm-up", "0");
+            serverWatchdogThreshold = cmd.getOptionValue("watchdog-threshold", "0");
+            serverCallCostSampleRate = cmd.getOptionValue("call-cost-sample-rate", "0");
+            serverCaptureDir = cmd.getOptionValue("capture-dir");
+            serverCaptureBufferSize = cmd.getOptionValue("capture-buffer-size", "8");
+            serverCaptureSegmentSize = cmd.getOptionValue("capture-segment-size", "64");
+            serverCaptureMaxSegments = cmd.getOptionValue("capture-max-segments", "16");
+            // In MiB, shifted into bytes as ints
+            int captureBufferSize = Integer.parseInt(serverCaptureBufferSize);
+            if (captureBufferSize < 1 || captureBufferSize > 1024 || Integer.bitCount(captureBufferSize) != 1) {
+                throw new ParseException("capture-buffer-size must be a power of two from 1 to 1024");
+            }
+            int captureSegmentSize = Integer.parseInt(serverCaptureSegmentSize);
+            if (captureSegmentSize > 2047 || captureSegmentSize * 2 <= captureBufferSize) {
+                // A segment holds at least the largest record, half of the buffer, and its header
+                throw new ParseException("capture-segment-size must be more than half the capture-buffer-size"
+                        + " and at most 2047");
+            }
+            if (Integer.parseInt(serverCaptureMaxSegments) < 0) {
+                throw new ParseException("capture-max-segments must not be negative");
+            }
 
         } catch (ParseException e) {
             System.out.println(e.getMessage());
@@ -166,11 +1179,58 @@ public class ServerApplication {
     public static void main(String[] args) throws IOException, InterruptedException {
         parseCommandLine(args);
 
+        // Before anything allocates a buffer, so that leaks are counted
+        BufferAllocation bufferAllocation = new BufferAllocation(
+                Integer.parseInt(serverAllocatorArenas),
+                Integer.parseInt(serverAllocatorChunkSize),
+                serverAllocatorThreadCaches,
+                serverLeakDetection);
+        TrafficCapture trafficCapture = serverCaptureDir == null ? null : new TrafficCapture(
+                new File(serverCaptureDir),
+                Integer.parseInt(serverCaptureBufferSize) << 20,
+                Integer.parseInt(serverCaptureSegmentSize) << 20,
+                Integer.parseInt(serverCaptureMaxSegments));
         final ServerApplication server = new ServerApplication(
                 Integer.parseInt(serverPort),
                 serverCertFilePath,
                 serverKeyFilePath,
-                null);
+                serverTrustFilePath,
+                Integer.parseInt(serverExecutorThreads),
+                Integer.parseInt(serverEventLoopThreads),
+                Integer.parseInt(serverLoadReportInterval),
+                serverSingleFlight,
+                Long.parseLong(serverTlsSessionCacheSize),
+                Long.parseLong(serverTlsSessionTimeout),
+                Long.parseLong(serverTicketKeyRotation),
+                Long.parseLong(serverMetricsLogInterval),
+                TlsTuning.selectProvider(serverSslProvider),
+                serverCiphers,
+                Long.parseLong(serverCertReloadInterval),
+                serverDomainSocketPath,
+                Integer.parseInt(serverListeners),
+                new FlowControl(
+                        Integer.parseInt(serverFlowControlWindow),
+                        Integer.parseInt(serverMaxInboundMessageSize),
+                        serverBdp),
+                new ConnectionManagement(
+                        Long.parseLong(serverKeepAliveTime),
+                        Long.parseLong(serverKeepAliveTimeout),
+                        Long.parseLong(serverMaxConnectionIdle),
+                        Long.parseLong(serverMaxConnectionAge),
+                        Long.parseLong(serverMaxConnectionAgeGrace),
+                        Long.parseLong(serverPermitKeepAliveTime),
+                        Integer.parseInt(serverMaxConcurrentCalls)),
+                bufferAllocation,
+                Long.parseLong(serverDrainDelay),
+                Long.parseLong(serverDrainTimeout),
+                Integer.parseInt(serverHealthMaxInFlight),
+                Integer.parseInt(serverHealthMaxQueueDepth),
+                Long.parseLong(serverHealthMaxLag),
+                Long.parseLong(serverHealthCheckInterval),
+                Long.parseLong(serverWarmUp),
+                Long.parseLong(serverWatchdogThreshold),
+                Double.parseDouble(serverCallCostSampleRate),
+                trafficCapture);
         server.start();
         server.blockUntilShutdown();
     }
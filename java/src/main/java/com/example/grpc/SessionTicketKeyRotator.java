@@ -0,0 +1,48 @@
+package com.example.grpc;
+
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+
+import java.security.SecureRandom;
+import java.util.logging.Logger;
+
+/**
+ * Periodically replaces the TLS session ticket key of an OpenSSL server context.
+ * <p>
+ * New tickets are always encrypted with the newest key. The previous key is kept for decryption
+ * so that tickets issued just before a rotation still resume.
+ */
+class SessionTicketKeyRotator implements Runnable {
+    private static final Logger logger = Logger.getLogger(SessionTicketKeyRotator.class.getName());
+
+    private final OpenSslSessionContext sessionContext;
+    private final SecureRandom random = new SecureRandom();
+    private OpenSslSessionTicketKey current;
+
+    SessionTicketKeyRotator(OpenSslSessionContext sessionContext) {
+        this.sessionContext = sessionContext;
+    }
+
+    @Override
+    public synchronized void run() {
+        OpenSslSessionTicketKey next = newKey();
+        if (current == null) {
+            sessionContext.setTicketKeys(next);
+        } else {
+            sessionContext.setTicketKeys(next, current);
+        }
+        current = next;
+        Metrics.counter("server.tls.ticket_key_rotations").incrementAndGet();
+        logger.fine("Rotated TLS session ticket key");
+    }
+
+    private OpenSslSessionTicketKey newKey() {
+        byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+        return new OpenSslSessionTicketKey(name, hmacKey, aesKey);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.grpc;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collapses concurrent computations for the same key into one.
+ * <p>
+ * The first caller for a key runs the loader, every caller arriving while it is in flight shares
+ * its result. Nothing is cached: once the computation completes the next caller starts a new one.
+ * Callers cannot cancel the shared computation on behalf of the others.
+ */
+class SingleFlight<K, V> {
+    interface Loader<V> {
+        ListenableFuture<V> load() throws Exception;
+    }
+
+    private final ConcurrentMap<K, ListenableFuture<V>> inFlight = new ConcurrentHashMap<K, ListenableFuture<V>>();
+    private final String metricPrefix;
+
+    /**
+     * @param metricPrefix prefix of the {@code executions} and {@code coalesced} counters
+     */
+    SingleFlight(String metricPrefix) {
+        this.metricPrefix = metricPrefix;
+    }
+
+    ListenableFuture<V> execute(final K key, Loader<V> loader) {
+        final SettableFuture<V> created = SettableFuture.create();
+        ListenableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            Metrics.counter(metricPrefix + "coalesced").incrementAndGet();
+            return Futures.nonCancellationPropagating(existing);
+        }
+
+        Metrics.counter(metricPrefix + "executions").incrementAndGet();
+        created.addListener(new Runnable() {
+            @Override
+            public void run() {
+                inFlight.remove(key, created);
+            }
+        }, MoreExecutors.directExecutor());
+        try {
+            created.setFuture(loader.load());
+        } catch (Throwable t) {
+            created.setException(t);
+        }
+        return Futures.nonCancellationPropagating(created);
+    }
+}
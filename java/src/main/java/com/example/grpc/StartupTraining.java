@@ -0,0 +1,63 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.*;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.services.HealthStatusManager;
+import io.grpc.stub.MetadataUtils;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Training run for the class data sharing archive of the {@code fast-startup} profile.
+ * <p>
+ * Starts the greeting service on an ephemeral loopback port and runs a {@link WarmUp} round over a real
+ * Netty connection, so that the classes a server and a client load at startup end up in the archive. The
+ * connection is plaintext since the build has no certificates, the TLS classes are loaded by building
+ * a client context.
+ */
+public class StartupTraining {
+    private static final Logger logger = Logger.getLogger(StartupTraining.class.getName());
+    private static final Logger serverLogger = Logger.getLogger(ServerApplication.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        serverLogger.setLevel(Level.WARNING);
+        GrpcSslContexts.forClient().build();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-app-%d").build());
+        Server server = NettyServerBuilder.forPort(0)
+                .executor(executor)
+                .addService(ServerInterceptors.intercept(new ServerApplication.GreetServiceImpl(false, executor),
+                        new ServerApplication.MyAuthInterceptor(),
+                        new LoadReportingInterceptor(16, executor)))
+                .addService(new HealthStatusManager().getHealthService())
+                .build()
+                .start();
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                .usePlaintext()
+                .build();
+        try {
+            Metadata headers = new Metadata();
+            headers.put(Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER), "valid-token");
+            HealthGrpc.newBlockingStub(channel).check(HealthCheckRequest.getDefaultInstance());
+            WarmUp.round(MetadataUtils.attachHeaders(GreetServiceGrpc.newBlockingStub(channel), headers),
+                    MetadataUtils.attachHeaders(GreetServiceGrpc.newStub(channel), headers));
+            logger.info("Training run finished");
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+    }
+}
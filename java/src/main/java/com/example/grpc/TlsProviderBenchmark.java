@@ -0,0 +1,204 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.*;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import org.apache.commons.cli.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures TLS handshake rate and bulk throughput for each provider and cipher family.
+ * <p>
+ * Both ends use the provider under test. Every handshake uses a fresh client context so that no
+ * session is resumed; the rate therefore includes building the client context. Bulk throughput is
+ * measured with large unary greetings over a single connection.
+ */
+public class TlsProviderBenchmark {
+    private static final Logger logger = Logger.getLogger(TlsProviderBenchmark.class.getName());
+    private static final Logger serverLogger = Logger.getLogger(ServerApplication.class.getName());
+
+    private static String certFilePath;
+    private static String keyFilePath;
+    private static String caFilePath;
+    private static int handshakes;
+    private static int bulkCalls;
+    private static int payloadSize;
+
+    private static final Metadata headers = new Metadata();
+
+    static {
+        headers.put(Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER), "valid-token");
+    }
+
+    private static SslContext clientContext(SslProvider provider, String ciphers) throws Exception {
+        return TlsTuning.configure(SslContextBuilder.forClient(), provider, ciphers)
+                .trustManager(new File(caFilePath))
+                .build();
+    }
+
+    private static ManagedChannel connect(int port, SslContext sslContext) {
+        return NettyChannelBuilder.forAddress("localhost", port)
+                .sslContext(sslContext)
+                .build();
+    }
+
+    private static void run(SslProvider provider, String ciphers, ThreadPoolExecutor executor) throws Exception {
+        SslContext serverContext = TlsTuning.configure(
+                SslContextBuilder.forServer(new File(certFilePath), new File(keyFilePath)), provider, ciphers)
+                .build();
+        Server server = NettyServerBuilder.forPort(0)
+                .executor(executor)
+                .sslContext(serverContext)
+                .addService(ServerInterceptors.intercept(
+                        new ServerApplication.GreetServiceImpl(false, executor),
+                        new ServerApplication.MyAuthInterceptor()))
+                .build()
+                .start();
+        Greeting.GreetRequest small = Greeting.GreetRequest.newBuilder()
+                .setGreeter(Greeting.Greeter.newBuilder().setFirstName("John"))
+                .build();
+
+        try {
+            // Warm up
+            for (int i = 0; i < Math.max(10, handshakes / 10); i++) {
+                handshake(server.getPort(), clientContext(provider, ciphers), small);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < handshakes; i++) {
+                handshake(server.getPort(), clientContext(provider, ciphers), small);
+            }
+            double handshakeRate = handshakes / ((System.nanoTime() - start) / 1e9);
+
+            Greeting.GreetRequest large = Greeting.GreetRequest.newBuilder()
+                    .setGreeter(Greeting.Greeter.newBuilder().setFirstName(Strings.repeat("x", payloadSize)))
+                    .build();
+            ManagedChannel channel = connect(server.getPort(), clientContext(provider, ciphers));
+            try {
+                GreetServiceGrpc.GreetServiceBlockingStub stub
+                        = MetadataUtils.attachHeaders(GreetServiceGrpc.newBlockingStub(channel), headers);
+                for (int i = 0; i < Math.max(10, bulkCalls / 10); i++) {
+                    stub.greet(large);
+                }
+                long bytes = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < bulkCalls; i++) {
+                    bytes += large.getSerializedSize() + stub.greet(large).getSerializedSize();
+                }
+                double throughput = bytes / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+
+                logger.info(String.format("%-8s %-9s %9.1f handshakes/s %9.1f MiB/s",
+                        provider, ciphers, handshakeRate, throughput));
+            } finally {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void handshake(int port, SslContext sslContext, Greeting.GreetRequest request)
+            throws InterruptedException {
+        ManagedChannel channel = connect(port, sslContext);
+        try {
+            MetadataUtils.attachHeaders(GreetServiceGrpc.newBlockingStub(channel), headers).greet(request);
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void parseCommandLine(String[] args) {
+        Options options = new Options();
+
+        Option option = new Option(null, "cert", true, "server certificate");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option(null, "key", true, "server key file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option(null, "cacert", true, "trusted CA certificate");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option(null, "handshakes", true, "full handshakes per run");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "bulk-calls", true, "large greetings per run");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(null, "payload", true, "first name length of the large greetings");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLine cmd;
+
+        try {
+            cmd = parser.parse(options, args);
+
+            certFilePath = cmd.getOptionValue("cert");
+            keyFilePath = cmd.getOptionValue("key");
+            caFilePath = cmd.getOptionValue("cacert");
+            handshakes = Integer.parseInt(cmd.getOptionValue("handshakes", "200"));
+            bulkCalls = Integer.parseInt(cmd.getOptionValue("bulk-calls", "500"));
+            payloadSize = Integer.parseInt(cmd.getOptionValue("payload", "65536"));
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("utility-name", options);
+
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        parseCommandLine(args);
+        // Per call logging in the service would dominate the measurement
+        serverLogger.setLevel(Level.WARNING);
+
+        List<SslProvider> providers = new ArrayList<SslProvider>();
+        if (OpenSsl.isAvailable()) {
+            providers.add(SslProvider.OPENSSL);
+        } else {
+            logger.log(Level.WARNING, "Native TLS provider unavailable, only measuring the JDK provider",
+                    OpenSsl.unavailabilityCause());
+        }
+        providers.add(SslProvider.JDK);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("grpc-app-%d").build());
+        try {
+            logger.info("AES instructions detected: " + TlsTuning.hasAesInstructions());
+            for (SslProvider provider : providers) {
+                for (String ciphers : new String[]{TlsTuning.CIPHERS_AES_GCM, TlsTuning.CIPHERS_CHACHA20}) {
+                    run(provider, ciphers, executor);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
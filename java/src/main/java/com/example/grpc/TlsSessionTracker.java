@@ -0,0 +1,68 @@
+package com.example.grpc;
+
+import io.grpc.*;
+
+import javax.net.ssl.SSLSession;
+import java.net.SocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Counts client TLS handshakes and how many of them resumed an earlier session.
+ * <p>
+ * A call on a connection not seen before, identified by its local address, marks a new handshake.
+ * The JDK provider hands out the cached {@link SSLSession} object again when it resumes a session,
+ * so a handshake that yields an already known session object was a resumption.
+ */
+class TlsSessionTracker implements ClientInterceptor {
+    private static final int MAX_TRACKED_CONNECTIONS = 1024;
+
+    private final Map<SSLSession, Boolean> sessions = new WeakHashMap<SSLSession, Boolean>();
+    private final Map<SocketAddress, Boolean> connections
+            = new LinkedHashMap<SocketAddress, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SocketAddress, Boolean> eldest) {
+            return size() > MAX_TRACKED_CONNECTIONS;
+        }
+    };
+
+    TlsSessionTracker() {
+        Metrics.gauge("client.tls.resumption_hit_rate", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return Metrics.ratio("client.tls.resumed", "client.tls.handshakes");
+            }
+        });
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions,
+                                                               Channel next) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onHeaders(Metadata headers) {
+                        track(getAttributes());
+                        super.onHeaders(headers);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    private synchronized void track(Attributes attributes) {
+        SSLSession session = attributes.get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
+        SocketAddress connection = attributes.get(Grpc.TRANSPORT_ATTR_LOCAL_ADDR);
+        if (session == null || connection == null || connections.put(connection, Boolean.TRUE) != null) {
+            return;
+        }
+        Metrics.counter("client.tls.handshakes").incrementAndGet();
+        if (sessions.put(session, Boolean.TRUE) != null) {
+            Metrics.counter("client.tls.resumed").incrementAndGet();
+        }
+    }
+}
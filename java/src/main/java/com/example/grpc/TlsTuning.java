@@ -0,0 +1,136 @@
+package com.example.grpc;
+
+import io.grpc.netty.GrpcSslContexts;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TLS provider selection and cipher suite ordering shared by the server and the client.
+ * <p>
+ * AES-GCM is the fastest AEAD on CPUs with AES instructions, ChaCha20-Poly1305 is several times
+ * faster on CPUs without them. Only HTTP/2 compliant AEAD suites are offered; the preferred family
+ * comes first and the other one stays available for peers that lack it.
+ */
+final class TlsTuning {
+    private static final Logger logger = Logger.getLogger(TlsTuning.class.getName());
+
+    static final String PROVIDER_OPENSSL = "openssl";
+    static final String PROVIDER_JDK = "jdk";
+
+    static final String CIPHERS_AUTO = "auto";
+    static final String CIPHERS_AES_GCM = "aes-gcm";
+    static final String CIPHERS_CHACHA20 = "chacha20";
+
+    private static final List<String> AES_GCM_SUITES = Arrays.asList(
+            "TLS_AES_128_GCM_SHA256",
+            "TLS_AES_256_GCM_SHA384",
+            "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384");
+
+    private static final List<String> CHACHA20_SUITES = Arrays.asList(
+            "TLS_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256");
+
+    private TlsTuning() {
+    }
+
+    /**
+     * @return whether {@code name} is {@code openssl} or {@code jdk}, in any case
+     */
+    static boolean isProvider(String name) {
+        return PROVIDER_OPENSSL.equalsIgnoreCase(name) || PROVIDER_JDK.equalsIgnoreCase(name);
+    }
+
+    /**
+     * @return whether {@code preference} is {@code auto}, {@code aes-gcm} or {@code chacha20}
+     */
+    static boolean isCipherPreference(String preference) {
+        return CIPHERS_AUTO.equals(preference) || CIPHERS_AES_GCM.equals(preference)
+                || CIPHERS_CHACHA20.equals(preference);
+    }
+
+    /**
+     * @param requested {@code openssl} or {@code jdk}
+     * @return the requested provider, or the JDK provider with a warning when the native one is not usable
+     */
+    static SslProvider selectProvider(String requested) {
+        SslProvider provider = SslProvider.valueOf(requested.toUpperCase(Locale.ROOT));
+        if (provider != SslProvider.JDK && !OpenSsl.isAvailable()) {
+            logger.log(Level.WARNING, "Native TLS provider unavailable, falling back to the JDK provider",
+                    OpenSsl.unavailabilityCause());
+            return SslProvider.JDK;
+        }
+        return provider;
+    }
+
+    /**
+     * Applies the gRPC defaults for {@code provider} and then the cipher suite order for {@code preference}.
+     *
+     * @param preference {@code auto}, {@code aes-gcm} or {@code chacha20}
+     */
+    static SslContextBuilder configure(SslContextBuilder builder, SslProvider provider, String preference) {
+        GrpcSslContexts.configure(builder, provider);
+        builder.ciphers(cipherSuites(preference), SupportedCipherSuiteFilter.INSTANCE);
+        return builder;
+    }
+
+    static List<String> cipherSuites(String preference) {
+        boolean aesFirst;
+        if (CIPHERS_AES_GCM.equals(preference)) {
+            aesFirst = true;
+        } else if (CIPHERS_CHACHA20.equals(preference)) {
+            aesFirst = false;
+        } else if (CIPHERS_AUTO.equals(preference)) {
+            aesFirst = hasAesInstructions();
+        } else {
+            throw new IllegalArgumentException("Unknown cipher preference " + preference);
+        }
+        List<String> suites = new ArrayList<String>(AES_GCM_SUITES.size() + CHACHA20_SUITES.size());
+        suites.addAll(aesFirst ? AES_GCM_SUITES : CHACHA20_SUITES);
+        suites.addAll(aesFirst ? CHACHA20_SUITES : AES_GCM_SUITES);
+        return suites;
+    }
+
+    /**
+     * Looks for the {@code aes} CPU flag (x86 AES-NI, ARMv8 crypto extensions). Assumes AES support on x86
+     * when the flags cannot be read, since practically every server CPU of the last decade has it.
+     */
+    static boolean hasAesInstructions() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader("/proc/cpuinfo"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("flags") || line.startsWith("Features")) {
+                    return Arrays.asList(line.substring(line.indexOf(':') + 1).trim().split("\\s+")).contains("aes");
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not read CPU flags", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        String arch = System.getProperty("os.arch", "");
+        return arch.contains("86") || arch.contains("amd64");
+    }
+}
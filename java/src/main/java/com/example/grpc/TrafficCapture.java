@@ -0,0 +1,296 @@
+package com.example.grpc;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import io.grpc.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Captures the calls to the server into an append-only log for debugging and replay.
+ * <p>
+ * The interceptor encodes a record when a call starts, for every request and response message and when
+ * the call ends, and hands it to a {@link CaptureRingBuffer}. A single writer thread moves the records
+ * from there into memory-mapped segment files, so that calls never wait for the disk; when the writer
+ * falls behind and the ring is full, records are dropped and counted in {@code server.capture.dropped},
+ * as are messages that fail to serialize. The messages are serialized a second time for their records, by
+ * the marshallers and on the threads of the call, so the hot path pays for capturing in CPU time and
+ * allocations even while the writer keeps up. A new segment is started when the current one is full, and
+ * the oldest are deleted beyond the limit.
+ * <p>
+ * Only the value of the {@code token} header is redacted; the other headers and all messages are captured
+ * as they are. The segments, and the directory when it is created for them, are therefore only accessible
+ * to the user running the server.
+ * <p>
+ * A segment starts with {@link #MAGIC} and {@link #VERSION} and holds records of a length, followed by
+ * that many bytes; a length of 0 ends the segment. A record is its type, the call id and the time in
+ * nanoseconds since the epoch, followed by
+ * <ul>
+ * <li>{@link #CALL_START}: the full method name and the request headers, with the {@code token} header
+ * redacted</li>
+ * <li>{@link #REQUEST} and {@link #RESPONSE}: the serialized message</li>
+ * <li>{@link #CALL_END}: the status code, once per call, {@code CANCELLED} if it was cancelled before it
+ * was closed</li>
+ * </ul>
+ * see {@link TrafficCaptureDump} for a reader. The interceptor is registered last, so that it sees the
+ * calls the other interceptors reject as well. The records of {@link WarmUp} calls are encoded but not
+ * captured.
+ */
+class TrafficCapture implements ServerInterceptor {
+    private static final Logger logger = Logger.getLogger(TrafficCapture.class.getName());
+
+    static final int MAGIC = 0x47524350;
+    static final int VERSION = 1;
+    static final byte CALL_START = 1;
+    static final byte REQUEST = 2;
+    static final byte RESPONSE = 3;
+    static final byte CALL_END = 4;
+
+    private static final int RECORD_HEADER = 1 + 8 + 8;
+    private static final String REDACTED_HEADER = "token";
+
+    private final CaptureRingBuffer ring;
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final AtomicLong callIds = new AtomicLong();
+    private final long epochNanosAtStart = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    private final long nanoTimeAtStart = System.nanoTime();
+    private final Deque<File> segments = new ArrayDeque<File>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+
+    /**
+     * @param directory        where the segments are written, created if needed
+     * @param ringBufferSize   bytes buffered between the calls and the writer, a power of two
+     * @param segmentSize      bytes per segment file, at least half the ring buffer
+     * @param maxSegments      segments kept, the oldest are deleted; 0 keeps them all
+     */
+    TrafficCapture(File directory, int ringBufferSize, int segmentSize, int maxSegments) throws IOException {
+        if (!directory.isDirectory()) {
+            Files.createDirectories(directory.toPath(),
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+        this.ring = new CaptureRingBuffer(ringBufferSize);
+        if (segmentSize < ring.maxRecordLength() + 16) {
+            throw new IllegalArgumentException("Segments must hold the largest record of "
+                    + ring.maxRecordLength() + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Metrics.gauge("server.capture.ring_used_bytes", new Metrics.Gauge() {
+            @Override
+            public double value() {
+                return ring.used();
+            }
+        });
+        writer = new Thread("grpc-capture-writer") {
+            @Override
+            public void run() {
+                writeSegments();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Capturing traffic into " + directory);
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        final boolean synthetic = WarmUp.isSynthetic();
+        final long callId = synthetic ? 0 : callIds.incrementAndGet();
+        final MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        append(startRecord(callId, method.getFullMethodName(), headers), synthetic);
+        // A call cancelled after it was closed must not end twice
+        final AtomicBoolean ended = new AtomicBoolean();
+        ServerCall<ReqT, RespT> capturingCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                append(messageRecord(RESPONSE, callId, method.streamResponse(message)), synthetic);
+                super.sendMessage(message);
+            }
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+                if (ended.compareAndSet(false, true)) {
+                    append(endRecord(callId, status), synthetic);
+                }
+                super.close(status, trailers);
+            }
+        };
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
+                next.startCall(capturingCall, headers)) {
+            @Override
+            public void onMessage(ReqT message) {
+                append(messageRecord(REQUEST, callId, method.streamRequest(message)), synthetic);
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onCancel() {
+                if (ended.compareAndSet(false, true)) {
+                    append(endRecord(callId, Status.CANCELLED), synthetic);
+                }
+                super.onCancel();
+            }
+        };
+    }
+
+    /**
+     * @param synthetic the record of a warm-up call, only encoded so that encoding gets compiled
+     */
+    private void append(byte[] record, boolean synthetic) {
+        if (record == null || synthetic) {
+            // Counted as dropped already, or not captured
+            return;
+        }
+        if (closed || !ring.write(record)) {
+            Metrics.counter("server.capture.dropped").incrementAndGet();
+            return;
+        }
+        Metrics.counter("server.capture.records").incrementAndGet();
+    }
+
+    private ByteBuffer newRecord(byte type, long callId, int bodyLength) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bodyLength);
+        record.put(type);
+        record.putLong(callId);
+        record.putLong(epochNanosAtStart + System.nanoTime() - nanoTimeAtStart);
+        return record;
+    }
+
+    private byte[] startRecord(long callId, String fullMethodName, Metadata headers) {
+        byte[] method = fullMethodName.getBytes(Charsets.UTF_8);
+        byte[][] serialized = InternalMetadata.serialize(headers);
+        int length = 2 + method.length + 4;
+        for (int i = 0; i < serialized.length; i += 2) {
+            if (REDACTED_HEADER.equals(new String(serialized[i], Charsets.US_ASCII))) {
+                serialized[i + 1] = new byte[0];
+            }
+            length += 2 + serialized[i].length + 4 + serialized[i + 1].length;
+        }
+        ByteBuffer record = newRecord(CALL_START, callId, length);
+        record.putShort((short) method.length).put(method);
+        record.putInt(serialized.length / 2);
+        for (int i = 0; i < serialized.length; i += 2) {
+            record.putShort((short) serialized[i].length).put(serialized[i]);
+            record.putInt(serialized[i + 1].length).put(serialized[i + 1]);
+        }
+        return record.array();
+    }
+
+    /**
+     * @return the record, null when the message could not be serialized, which counts as dropped
+     */
+    private byte[] messageRecord(byte type, long callId, InputStream message) {
+        byte[] payload;
+        try {
+            payload = ByteStreams.toByteArray(message);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to serialize a captured message", e);
+            Metrics.counter("server.capture.dropped").incrementAndGet();
+            return null;
+        }
+        return newRecord(type, callId, payload.length).put(payload).array();
+    }
+
+    private byte[] endRecord(long callId, Status status) {
+        return newRecord(CALL_END, callId, 4).putInt(status.getCode().value()).array();
+    }
+
+    private void writeSegments() {
+        CaptureRingBuffer.RecordHandler handler = new CaptureRingBuffer.RecordHandler() {
+            @Override
+            public void onRecord(ByteBuffer record) {
+                try {
+                    writeRecord(record);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to write a capture segment", e);
+                    Metrics.counter("server.capture.dropped").incrementAndGet();
+                }
+            }
+        };
+        while (true) {
+            boolean closing = closed;
+            if (ring.read(handler) == 0) {
+                if (closing) {
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private void writeRecord(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        // Keeps room for the end marker
+        if (segment == null || segment.remaining() < 4 + length + 4) {
+            nextSegment();
+        }
+        segment.putInt(length);
+        segment.put(record);
+        Metrics.counter("server.capture.bytes").addAndGet(4 + length);
+    }
+
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        File file = new File(directory, String.format("capture-%d-%05d.log",
+                TimeUnit.NANOSECONDS.toMillis(epochNanosAtStart), segmentNumber++));
+        // Created readable by the owner only, rather than with the umask's permissions
+        FileChannel channel = FileChannel.open(file.toPath(),
+                EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        try {
+            // The mapping stays valid after the channel is closed, the file is zero filled past the records
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } finally {
+            channel.close();
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segments.addLast(file);
+        Metrics.counter("server.capture.segments").incrementAndGet();
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            File oldest = segments.removeFirst();
+            if (!oldest.delete()) {
+                logger.warning("Could not delete capture segment " + oldest);
+            }
+        }
+    }
+
+    /**
+     * Stops capturing and waits until the captured records are written.
+     */
+    void close() throws InterruptedException {
+        closed = true;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.google.common.base.Charsets;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the calls captured by {@link TrafficCapture}, one line per record, with the messages of the
+ * greeting service decoded.
+ * <p>
+ * Takes segment files or capture directories, whose segments are read in the order they were written.
+ */
+public class TrafficCaptureDump {
+    private final Map<String, MethodDescriptor<?, ?>> methods = new HashMap<String, MethodDescriptor<?, ?>>();
+    private final Map<Long, MethodDescriptor<?, ?>> calls = new HashMap<Long, MethodDescriptor<?, ?>>();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private TrafficCaptureDump() {
+        for (MethodDescriptor<?, ?> method : GreetServiceGrpc.getServiceDescriptor().getMethods()) {
+            methods.put(method.getFullMethodName(), method);
+        }
+    }
+
+    private void dump(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        ByteBuffer segment;
+        try {
+            segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+        } finally {
+            randomAccessFile.close();
+        }
+        if (segment.remaining() < 8 || segment.getInt() != TrafficCapture.MAGIC) {
+            throw new IOException(file + " is not a capture segment");
+        }
+        int version = segment.getInt();
+        if (version != TrafficCapture.VERSION) {
+            throw new IOException(file + " has the unsupported version " + version);
+        }
+        System.out.println("# " + file);
+        while (segment.remaining() >= 4) {
+            int length = segment.getInt();
+            if (length == 0) {
+                break;
+            }
+            ByteBuffer record = segment.slice();
+            record.limit(length);
+            segment.position(segment.position() + length);
+            System.out.println(format(record));
+        }
+    }
+
+    private String format(ByteBuffer record) {
+        byte type = record.get();
+        long callId = record.getLong();
+        long epochNanos = record.getLong();
+        StringBuilder line = new StringBuilder()
+                .append(timeFormat.format(new Date(TimeUnit.NANOSECONDS.toMillis(epochNanos))))
+                .append(" call ").append(callId).append(' ');
+        switch (type) {
+            case TrafficCapture.CALL_START:
+                byte[] method = new byte[record.getShort()];
+                record.get(method);
+                String fullMethodName = new String(method, Charsets.UTF_8);
+                if (methods.containsKey(fullMethodName)) {
+                    calls.put(callId, methods.get(fullMethodName));
+                }
+                line.append("start ").append(fullMethodName);
+                int headers = record.getInt();
+                for (int i = 0; i < headers; i++) {
+                    byte[] key = new byte[record.getShort()];
+                    record.get(key);
+                    byte[] value = new byte[record.getInt()];
+                    record.get(value);
+                    String name = new String(key, Charsets.US_ASCII);
+                    line.append(' ').append(name).append('=')
+                            .append(name.endsWith("-bin") ? value.length + " bytes" : new String(value, Charsets.US_ASCII));
+                }
+                break;
+            case TrafficCapture.REQUEST:
+            case TrafficCapture.RESPONSE:
+                byte[] payload = new byte[record.remaining()];
+                record.get(payload);
+                line.append(type == TrafficCapture.REQUEST ? "request " : "response ")
+                        .append(payload.length).append(" bytes");
+                MethodDescriptor<?, ?> descriptor = calls.get(callId);
+                if (descriptor != null) {
+                    Object message = type == TrafficCapture.REQUEST
+                            ? descriptor.parseRequest(new ByteArrayInputStream(payload))
+                            : descriptor.parseResponse(new ByteArrayInputStream(payload));
+                    line.append(": ").append(String.valueOf(message).trim().replace('\n', ' '));
+                }
+                break;
+            case TrafficCapture.CALL_END:
+                calls.remove(callId);
+                line.append("end ").append(Status.fromCodeValue(record.getInt()).getCode());
+                break;
+            default:
+                line.append("unknown record type ").append(type);
+        }
+        return line.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: TrafficCaptureDump <segment file or capture directory>...");
+            System.exit(1);
+        }
+        List<File> files = new ArrayList<File>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] segments = file.listFiles();
+            if (segments == null) {
+                files.add(file);
+                continue;
+            }
+            // The names sort by capture start and segment number
+            Arrays.sort(segments);
+            for (File segment : segments) {
+                if (segment.getName().startsWith("capture-")) {
+                    files.add(segment);
+                }
+            }
+        }
+        TrafficCaptureDump dump = new TrafficCaptureDump();
+        for (File file : files) {
+            dump.dump(file);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.grpc;
+
+import com.example.grpc.protos.GreetServiceGrpc;
+import com.example.grpc.protos.Greeting;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.*;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Drives synthetic calls through the service before the server starts listening, so that the first real
+ * calls do not run interpreted.
+ * <p>
+ * The calls go over an in-process channel to a separate instance of the service, which neither logs them
+ * nor counts them with the real calls, behind the same interceptors and stream tracer and on the same
+ * executor, and to the health service. The interceptors recognise the synthetic calls by
+ * {@link #isSynthetic()} and run their usual code for them, but leave them out of the traffic capture, the
+ * call costs and the load. The in-process transport hands messages over by reference, the marshallers are
+ * therefore exercised separately on serialized copies. Rounds of calls continue until the JIT spends less
+ * than {@link #SETTLED_RATIO} of a round compiling, or until the time limit.
+ */
+class WarmUp {
+    private static final Logger logger = Logger.getLogger(WarmUp.class.getName());
+
+    /**
+     * Share of a round spent in the JIT compiler below which compilation is considered settled.
+     */
+    static final double SETTLED_RATIO = 0.05;
+    /**
+     * Iterations of every call per round.
+     */
+    static final int ROUND_SIZE = 500;
+
+    private static final String SERVER_NAME = "warm-up";
+    private static final Context.Key<Boolean> SYNTHETIC = Context.keyWithDefault("synthetic", false);
+
+    private final ServerServiceDefinition service;
+    private final ServerServiceDefinition healthService;
+    private final Executor executor;
+
+    /**
+     * @param service       the intercepted greeting service, not logging its calls
+     * @param healthService the health service
+     * @param executor      the application executor
+     */
+    WarmUp(ServerServiceDefinition service, ServerServiceDefinition healthService, Executor executor) {
+        this.service = service;
+        this.healthService = healthService;
+        this.executor = executor;
+    }
+
+    /**
+     * @return true in the interceptors of a warm-up call, which must not be captured or counted
+     */
+    static boolean isSynthetic() {
+        return SYNTHETIC.get();
+    }
+
+    /**
+     * Marks the calls of the warm-up server as synthetic, ahead of all other interceptors.
+     */
+    private static final class SyntheticCallMarker implements ServerInterceptor {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> call,
+                Metadata headers,
+                ServerCallHandler<ReqT, RespT> next) {
+            return Contexts.interceptCall(Context.current().withValue(SYNTHETIC, true), call, headers, next);
+        }
+    }
+
+    /**
+     * Runs rounds of calls until compilation settles or {@code timeoutMillis} passed.
+     */
+    void run(long timeoutMillis) throws IOException, InterruptedException {
+        Server server = RpcEventTracing.configureWarmUp(InProcessServerBuilder.forName(SERVER_NAME))
+                .executor(executor)
+                .addService(ServerInterceptors.intercept(service, new SyntheticCallMarker()))
+                .addService(ServerInterceptors.intercept(healthService, new SyntheticCallMarker()))
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(SERVER_NAME).build();
+        try {
+            Metadata headers = new Metadata();
+            headers.put(Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER), "valid-token");
+            GreetServiceGrpc.GreetServiceBlockingStub blockingStub
+                    = MetadataUtils.attachHeaders(GreetServiceGrpc.newBlockingStub(channel), headers);
+            GreetServiceGrpc.GreetServiceStub asyncStub
+                    = MetadataUtils.attachHeaders(GreetServiceGrpc.newStub(channel), headers);
+            HealthGrpc.HealthBlockingStub healthStub = HealthGrpc.newBlockingStub(channel);
+
+            CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+            boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long compilationMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+            int rounds = 0;
+            boolean settled = false;
+            while (!settled && System.nanoTime() < deadline) {
+                long roundStart = System.nanoTime();
+                round(blockingStub, asyncStub);
+                checkHealth(healthStub);
+                rounds++;
+                long roundMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - roundStart);
+                if (monitored) {
+                    long total = compiler.getTotalCompilationTime();
+                    settled = total - compilationMillis < roundMillis * SETTLED_RATIO;
+                    compilationMillis = total;
+                }
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Metrics.counter("server.warmup.calls").addAndGet((long) rounds * ROUND_SIZE * 6);
+            Metrics.counter("server.warmup.millis").addAndGet(elapsedMillis);
+            logger.info("Warm-up ran " + rounds + " round(s) in " + elapsedMillis + " ms, "
+                    + (settled ? "compilation settled" : "stopped at the time limit")
+                    + (monitored ? " after " + compiler.getTotalCompilationTime() + " ms of JIT compilation" : ""));
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Calls every method {@link #ROUND_SIZE} times.
+     */
+    static void round(GreetServiceGrpc.GreetServiceBlockingStub blockingStub,
+                      GreetServiceGrpc.GreetServiceStub asyncStub) throws InterruptedException {
+        for (int i = 0; i < ROUND_SIZE; i++) {
+            Greeting.Greeter greeter = Greeting.Greeter.newBuilder()
+                    .setFirstName("WarmUp" + i)
+                    .setLastName("Synthetic")
+                    .build();
+            Greeting.GreetRequest request = Greeting.GreetRequest.newBuilder().setGreeter(greeter).build();
+
+            Greeting.GreetResponse response = blockingStub.greet(request);
+            roundTrip(GreetServiceGrpc.getGreetMethod(), request, response);
+
+            Iterator<Greeting.GreetResponse> responses = blockingStub.greetManyTimes(request);
+            while (responses.hasNext()) {
+                responses.next();
+            }
+
+            Greeting.GreetBatchRequest batchRequest = Greeting.GreetBatchRequest.newBuilder()
+                    .addGreeters(greeter)
+                    .addGreeters(greeter)
+                    .build();
+            roundTrip(GreetServiceGrpc.getGreetBatchMethod(), batchRequest, blockingStub.greetBatch(batchRequest));
+
+            stream(asyncStub, request, true);
+            stream(asyncStub, request, false);
+        }
+    }
+
+    /**
+     * Checks the health {@link #ROUND_SIZE} times.
+     */
+    private static void checkHealth(HealthGrpc.HealthBlockingStub healthStub) {
+        HealthCheckRequest request = HealthCheckRequest.newBuilder()
+                .setService(GreetServiceGrpc.SERVICE_NAME)
+                .build();
+        for (int i = 0; i < ROUND_SIZE; i++) {
+            roundTrip(HealthGrpc.getCheckMethod(), request, healthStub.check(request));
+        }
+    }
+
+    /**
+     * Streams three requests through {@code LongGreet} or {@code GreetEveryone} and waits for the end.
+     */
+    private static void stream(GreetServiceGrpc.GreetServiceStub asyncStub, Greeting.GreetRequest request,
+                               boolean clientStreaming) throws InterruptedException {
+        final SettableFuture<Void> done = SettableFuture.create();
+        StreamObserver<Greeting.GreetResponse> responseObserver = new StreamObserver<Greeting.GreetResponse>() {
+            @Override
+            public void onNext(Greeting.GreetResponse response) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.setException(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                done.set(null);
+            }
+        };
+        StreamObserver<Greeting.GreetRequest> requestObserver = clientStreaming
+                ? asyncStub.longGreet(responseObserver)
+                : asyncStub.greetEveryone(responseObserver);
+        for (int i = 0; i < 3; i++) {
+            requestObserver.onNext(request);
+        }
+        requestObserver.onCompleted();
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            throw Status.fromThrowable(e.getCause()).asRuntimeException();
+        }
+    }
+
+    /**
+     * Serializes and parses a request and a response the way a network transport would.
+     */
+    private static <ReqT, RespT> void roundTrip(MethodDescriptor<ReqT, RespT> method, ReqT request, RespT response) {
+        try {
+            method.parseRequest(new ByteArrayInputStream(ByteStreams.toByteArray(method.streamRequest(request))));
+            method.parseResponse(new ByteArrayInputStream(ByteStreams.toByteArray(method.streamResponse(response))));
+        } catch (IOException e) {
+            throw new IllegalStateException("Marshalling failed during warm-up", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.grpc;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CaptureRingBufferTest {
+    private static byte[] record(int length, int fill) {
+        byte[] record = new byte[length];
+        Arrays.fill(record, (byte) fill);
+        return record;
+    }
+
+    private static List<byte[]> readAll(CaptureRingBuffer ring) {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        ring.read(new CaptureRingBuffer.RecordHandler() {
+            @Override
+            public void onRecord(ByteBuffer buffer) {
+                byte[] record = new byte[buffer.remaining()];
+                buffer.get(record);
+                records.add(record);
+            }
+        });
+        return records;
+    }
+
+    @Test
+    public void rejectsEmptyAndOversizedRecords() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertEquals(128, ring.maxRecordLength());
+        assertFalse(ring.write(new byte[0]));
+        assertFalse(ring.write(record(129, 1)));
+        assertEquals(0, ring.used());
+    }
+
+    @Test
+    public void readsRecordsOfMaxRecordLength() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertTrue(ring.write(record(128, 1)));
+        assertTrue(ring.write(record(128, 2)));
+        List<byte[]> records = readAll(ring);
+        assertEquals(2, records.size());
+        assertArrayEquals(record(128, 1), records.get(0));
+        assertArrayEquals(record(128, 2), records.get(1));
+        assertEquals(0, ring.used());
+    }
+
+    @Test
+    public void wrapsWithPadding() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertTrue(ring.write(record(100, 1)));
+        assertTrue(ring.write(record(60, 2)));
+        assertEquals(2, readAll(ring).size());
+
+        // 64 bytes are left before the end, the record is padded to it and stored at the start
+        assertTrue(ring.write(record(100, 3)));
+        assertEquals(64 + 128, ring.used());
+        assertTrue(ring.write(record(20, 4)));
+        List<byte[]> records = readAll(ring);
+        assertEquals(2, records.size());
+        assertArrayEquals(record(100, 3), records.get(0));
+        assertArrayEquals(record(20, 4), records.get(1));
+        assertEquals(0, ring.used());
+    }
+
+    @Test
+    public void wrapsRecordsOfMaxRecordLength() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertTrue(ring.write(record(128, 1)));
+        assertTrue(ring.write(record(32, 2)));
+        assertEquals(2, readAll(ring).size());
+
+        // 96 bytes are left before the end, the record is padded to it and stored at the start
+        assertTrue(ring.write(record(128, 3)));
+        List<byte[]> records = readAll(ring);
+        assertEquals(1, records.size());
+        assertArrayEquals(record(128, 3), records.get(0));
+    }
+
+    @Test
+    public void dropsRecordsWhenFull() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertTrue(ring.write(record(128, 1)));
+        assertTrue(ring.write(record(96, 2)));
+        assertFalse(ring.write(record(64, 3)));
+        assertTrue(ring.write(record(32, 4)));
+        assertFalse(ring.write(record(1, 5)));
+        assertEquals(256, ring.used());
+
+        List<byte[]> records = readAll(ring);
+        assertEquals(3, records.size());
+        assertArrayEquals(record(128, 1), records.get(0));
+        assertArrayEquals(record(96, 2), records.get(1));
+        assertArrayEquals(record(32, 4), records.get(2));
+        assertTrue(ring.write(record(64, 6)));
+    }
+
+    @Test
+    public void dropsRecordsWhoseFreeSpaceIsTakenByPadding() {
+        CaptureRingBuffer ring = new CaptureRingBuffer(256);
+        assertTrue(ring.write(record(96, 1)));
+        assertEquals(1, readAll(ring).size());
+        assertTrue(ring.write(record(128, 2)));
+
+        // 128 bytes are free, 32 before the end and 96 at the start, but not 128 in one piece
+        assertFalse(ring.write(record(100, 3)));
+        assertEquals(128, ring.used());
+        List<byte[]> records = readAll(ring);
+        assertEquals(1, records.size());
+        assertArrayEquals(record(128, 2), records.get(0));
+    }
+
+    @Test(timeout = 60000)
+    public void concurrentWritersLoseAndReorderNothing() throws InterruptedException {
+        final int writers = 4;
+        final int recordsPerWriter = 20000;
+        final CaptureRingBuffer ring = new CaptureRingBuffer(1024);
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int seq = 0; seq < recordsPerWriter; seq++) {
+                            // Lengths from 8 up to the largest record, so that records wrap at every offset
+                            int length = 8 + (seq * 37 + writer * 11) % (ring.maxRecordLength() - 7);
+                            ByteBuffer record = ByteBuffer.allocate(length);
+                            record.putInt(writer).putInt(seq);
+                            while (record.hasRemaining()) {
+                                record.put((byte) (writer + seq));
+                            }
+                            while (!ring.write(record.array())) {
+                                rejected.incrementAndGet();
+                                Thread.yield();
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        final int[] next = new int[writers];
+        final int[] received = new int[1];
+        start.countDown();
+        while (received[0] < writers * recordsPerWriter && failure.get() == null) {
+            int read = ring.read(new CaptureRingBuffer.RecordHandler() {
+                @Override
+                public void onRecord(ByteBuffer buffer) {
+                    int length = buffer.remaining();
+                    int writer = buffer.getInt();
+                    int seq = buffer.getInt();
+                    assertEquals("record of writer " + writer, next[writer], seq);
+                    assertEquals(8 + (seq * 37 + writer * 11) % (ring.maxRecordLength() - 7), length);
+                    while (buffer.hasRemaining()) {
+                        assertEquals((byte) (writer + seq), buffer.get());
+                    }
+                    next[writer]++;
+                    received[0]++;
+                }
+            });
+            if (read == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        for (int w = 0; w < writers; w++) {
+            assertEquals(recordsPerWriter, next[w]);
+        }
+        assertEquals(0, ring.used());
+        // The ring is small enough to fill up, so the full case ran concurrently as well
+        assertTrue(rejected.get() > 0);
+    }
+}
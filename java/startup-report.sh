@@ -0,0 +1,99 @@
+#!/bin/bash
+#
+# Reports startup time and resident memory of the server and the client for each packaging:
+# the plain fat jar and the fat jar with the AppCDS archive. Native executables are a deferred follow-up,
+# see the end of pom.xml.
+#
+#   mvn -Pfast-startup package        # target/Demo-1.0-SNAPSHOT-all.jar and target/Demo.jsa
+#   ./startup-report.sh server.crt server.pem ca.crt
+#
+# Server startup is the time until it logs that it is listening, its RSS is sampled right then.
+# Client startup is the time of a complete run with a single greeting, its RSS is the peak (VmHWM).
+
+set -e
+
+if [ $# -lt 3 ]; then
+  echo "usage: $0 <server cert> <server key> <ca cert> [port]" >&2
+  exit 1
+fi
+
+JAVA_HOME_DIR=$(realpath "$(dirname -- $0)")
+TARGET=$JAVA_HOME_DIR/target
+CERT=$1
+KEY=$2
+CA=$3
+PORT=${4:-50071}
+JAR=$TARGET/Demo-1.0-SNAPSHOT-all.jar
+ARCHIVE=$TARGET/Demo.jsa
+LOG=$(mktemp)
+trap 'rm -f $LOG' EXIT
+
+now_millis() {
+  date +%s%3N
+}
+
+rss_kib() {
+  awk "/^$2:/ { print \$2 }" /proc/$1/status 2>/dev/null
+}
+
+# server <label> <command...>
+server() {
+  local label=$1
+  shift
+  local start=$(now_millis)
+  "$@" --port $PORT --cert $CERT --key $KEY > $LOG 2>&1 &
+  local pid=$!
+  until grep -q "Server started" $LOG; do
+    if ! kill -0 $pid 2>/dev/null; then
+      echo "$label: server failed to start" >&2
+      cat $LOG >&2
+      return 1
+    fi
+    sleep 0.01
+  done
+  local elapsed=$(( $(now_millis) - start ))
+  printf "%-24s server startup %6d ms   RSS %7d KiB\n" "$label" $elapsed $(rss_kib $pid VmRSS)
+  kill $pid
+  wait $pid 2>/dev/null || true
+}
+
+# client <label> <command...>, needs a server on the port
+client() {
+  local label=$1
+  shift
+  local start=$(now_millis)
+  "$@" --port $PORT --cacert $CA --count 1 > $LOG 2>&1 &
+  local pid=$!
+  local peak=0 sample
+  while kill -0 $pid 2>/dev/null; do
+    # The last sample may come too late, when the process is gone
+    sample=$(rss_kib $pid VmHWM || true)
+    peak=${sample:-$peak}
+    sleep 0.01
+  done
+  local elapsed=$(( $(now_millis) - start ))
+  wait $pid 2>/dev/null || true
+  printf "%-24s client run     %6d ms   RSS %7d KiB (peak)\n" "$label" $elapsed $peak
+}
+
+report() {
+  local label=$1
+  shift
+  local client_command=$1
+  shift
+  server "$label" "$@"
+  # The client needs a server to talk to, a plain JVM one keeps the comparison fair
+  java -jar $JAR --port $PORT --cert $CERT --key $KEY > /dev/null 2>&1 &
+  local server_pid=$!
+  sleep 3
+  client "$label" $client_command
+  kill $server_pid
+  wait $server_pid 2>/dev/null || true
+}
+
+report "jar" "java -cp $JAR com.example.grpc.ClientApplication" \
+  java -jar $JAR
+if [ -f $ARCHIVE ]; then
+  report "jar + AppCDS" "java -XX:SharedArchiveFile=$ARCHIVE -cp $JAR com.example.grpc.ClientApplication" \
+    java -XX:SharedArchiveFile=$ARCHIVE -jar $JAR
+fi
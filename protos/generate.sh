@@ -1,7 +1,7 @@
 #!/bin/bash
 
 PROJECT_HOME=$(realpath "$(dirname -- $0)/..")
-JAVA_SRC_BASE=$PROJECT_HOME/java/src/main/java
+JAVA_SRC_BASE=$PROJECT_HOME/java/src/generated/java
 
 protoc \
   --proto_path $PROJECT_HOME/protos \